@@ -0,0 +1,23 @@
+package org.caleydo.view.dynamicpathway.events;
+
+import org.caleydo.core.event.AEvent;
+import org.caleydo.view.dynamicpathway.layout.ELayoutAlgorithm;
+
+public class ChangeLayoutAlgorithmEvent extends AEvent {
+
+	private final ELayoutAlgorithm layoutAlgorithm;
+
+	public ChangeLayoutAlgorithmEvent(ELayoutAlgorithm layoutAlgorithm) {
+		this.layoutAlgorithm = layoutAlgorithm;
+	}
+
+	@Override
+	public boolean checkIntegrity() {
+		return layoutAlgorithm != null;
+	}
+
+	public ELayoutAlgorithm getLayoutAlgorithm() {
+		return layoutAlgorithm;
+	}
+
+}
@@ -0,0 +1,22 @@
+package org.caleydo.view.dynamicpathway.events;
+
+import org.caleydo.core.event.AEvent;
+
+public class ChangeLayoutTimeBudgetEvent extends AEvent {
+
+	private final int layoutTimeBudgetMs;
+
+	public ChangeLayoutTimeBudgetEvent(int layoutTimeBudgetMs) {
+		this.layoutTimeBudgetMs = layoutTimeBudgetMs;
+	}
+
+	@Override
+	public boolean checkIntegrity() {
+		return layoutTimeBudgetMs > 0;
+	}
+
+	public int getLayoutTimeBudgetMs() {
+		return layoutTimeBudgetMs;
+	}
+
+}
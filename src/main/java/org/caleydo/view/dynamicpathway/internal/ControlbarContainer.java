@@ -22,11 +22,14 @@ import org.caleydo.core.view.opengl.layout2.renderer.GLRenderers;
 import org.caleydo.core.view.opengl.picking.APickingListener;
 import org.caleydo.core.view.opengl.picking.Pick;
 import org.caleydo.datadomain.pathway.graph.PathwayGraph;
+import org.caleydo.view.dynamicpathway.events.ChangeLayoutAlgorithmEvent;
+import org.caleydo.view.dynamicpathway.events.ChangeLayoutTimeBudgetEvent;
 import org.caleydo.view.dynamicpathway.events.ChangeVertexEnvironmentEvent;
 import org.caleydo.view.dynamicpathway.events.ClearCanvasEvent;
 import org.caleydo.view.dynamicpathway.events.DuplicateVerticesSettingChangeEvent;
 import org.caleydo.view.dynamicpathway.events.ZeroDegreeNodesSettingChangeEvent;
 import org.caleydo.view.dynamicpathway.layout.DynamicPathwayIconLabelRenderer;
+import org.caleydo.view.dynamicpathway.layout.ELayoutAlgorithm;
 import org.caleydo.view.dynamicpathway.ui.ControlbarPathwayTitleEntry;
 import org.caleydo.view.dynamicpathway.ui.VertexEnvironmentDialog;
 import org.caleydo.vis.lineup.ui.RenderStyle;
@@ -39,6 +42,21 @@ public class ControlbarContainer extends AnimatedGLElementContainer implements I
 	private static final String TITLE = "Control Bar";
 	private static final String CLEAR_CANVAS_INFO_TEXT = "Remove Pathways:";
 
+	/**
+	 * selectable algorithms of the graph layout &amp; their labels
+	 */
+	private static final ELayoutAlgorithm[] LAYOUT_ALGORITHMS = { ELayoutAlgorithm.AUTOMATIC,
+			ELayoutAlgorithm.FRUCHTERMAN_REINGOLD, ELayoutAlgorithm.STRESS_SGD, ELayoutAlgorithm.PIVOT_MDS,
+			ELayoutAlgorithm.LAYERED };
+	private static final String[] LAYOUT_ALGORITHM_LABELS = { "Automatic", "Fruchterman-Reingold", "Stress (SGD)",
+			"Pivot-MDS", "Layered" };
+
+	/**
+	 * selectable time budgets of a whole layout in milliseconds &amp; their labels
+	 */
+	private static final int[] LAYOUT_TIME_BUDGETS_MS = { 500, 2000, 10000 };
+	private static final String[] LAYOUT_TIME_BUDGET_LABELS = { "0.5 s", "2 s", "10 s" };
+
 	/**
 	 * radio group for allowing/ignoring zero degree nodes
 	 */
@@ -60,6 +78,17 @@ public class ControlbarContainer extends AnimatedGLElementContainer implements I
 	// */
 	//
 	private GLElement vertexEnvironmentSizeValue;
+
+	/**
+	 * radio groups for the layout algorithm &amp; the time budget, which is used for choosing the automatic one
+	 */
+	private RadioController layoutAlgorithmRadioController;
+	private GLButton[] layoutAlgorithmButtons;
+	private ELayoutAlgorithm layoutAlgorithm;
+	private RadioController layoutTimeBudgetRadioController;
+	private GLButton[] layoutTimeBudgetButtons;
+	private int layoutTimeBudgetMs;
+
 	/**
 	 * focus pathway
 	 */
@@ -77,12 +106,20 @@ public class ControlbarContainer extends AnimatedGLElementContainer implements I
 
 	private Integer nodeEnvironmentSize;
 
-	public ControlbarContainer() {
+	/**
+	 * @param layoutAlgorithm
+	 *            algorithm of the graph layout on start
+	 * @param layoutTimeBudgetMs
+	 *            time budget of a whole layout on start
+	 */
+	public ControlbarContainer(ELayoutAlgorithm layoutAlgorithm, int layoutTimeBudgetMs) {
 		super();
 		setLayout(GLLayouts.flowVertical(10));
 
 		this.contextPathways = new HashMap<String, GLElement>();
 		this.nodeEnvironmentSize = new Integer(VERTEX_ENV_ON_START);
+		this.layoutAlgorithm = layoutAlgorithm;
+		this.layoutTimeBudgetMs = layoutTimeBudgetMs;
 
 		/**
 		 * create header
@@ -183,6 +220,47 @@ public class ControlbarContainer extends AnimatedGLElementContainer implements I
 		vertexEnvironmentSizeLineSeparator.setVisibility(EVisibility.VISIBLE);
 		add(vertexEnvironmentSizeLineSeparator);
 
+		/**
+		 * Radio group: layout algorithm
+		 */
+		layoutAlgorithmRadioController = new RadioController(this);
+		add(createSubHeader("Layout Algorithm"));
+		layoutAlgorithmButtons = new GLButton[LAYOUT_ALGORITHMS.length];
+		for (int i = 0; i < LAYOUT_ALGORITHMS.length; i++) {
+			layoutAlgorithmButtons[i] = createRadioButton(LAYOUT_ALGORITHM_LABELS[i], "Algorithm of the graph layout",
+					layoutAlgorithmRadioController);
+			add(layoutAlgorithmButtons[i]);
+		}
+
+		add(createLineSeparator());
+
+		/**
+		 * Radio group: time budget of the layout
+		 */
+		layoutTimeBudgetRadioController = new RadioController(this);
+		add(createSubHeader("Layout Time Budget"));
+		layoutTimeBudgetButtons = new GLButton[LAYOUT_TIME_BUDGETS_MS.length];
+		for (int i = 0; i < LAYOUT_TIME_BUDGETS_MS.length; i++) {
+			layoutTimeBudgetButtons[i] = createRadioButton(LAYOUT_TIME_BUDGET_LABELS[i],
+					"Automatic layout: the most exact algorithm, which fits into this time",
+					layoutTimeBudgetRadioController);
+			add(layoutTimeBudgetButtons[i]);
+		}
+
+		/**
+		 * selected after both groups were created, the start values don't trigger any events
+		 */
+		for (int i = 0; i < LAYOUT_ALGORITHMS.length; i++) {
+			if (LAYOUT_ALGORITHMS[i] == layoutAlgorithm)
+				layoutAlgorithmButtons[i].setSelected(true);
+		}
+		for (int i = 0; i < LAYOUT_TIME_BUDGETS_MS.length; i++) {
+			if (LAYOUT_TIME_BUDGETS_MS[i] == layoutTimeBudgetMs)
+				layoutTimeBudgetButtons[i].setSelected(true);
+		}
+
+		add(createLineSeparator());
+
 		/**
 		 * Clear all button
 		 */
@@ -300,6 +378,14 @@ public class ControlbarContainer extends AnimatedGLElementContainer implements I
 		return nodeEnvironmentSize.intValue();
 	}
 
+	public ELayoutAlgorithm getLayoutAlgorithm() {
+		return layoutAlgorithm;
+	}
+
+	public int getLayoutTimeBudget() {
+		return layoutTimeBudgetMs;
+	}
+
 	public boolean setNodeEnvironmentSize(int nodeEnvironmentSize) {
 		boolean nodeEnvSizeChanged = false;
 		System.out.println("CHANGING ENV SIZE from " + this.nodeEnvironmentSize + " to " + nodeEnvironmentSize);
@@ -459,6 +545,22 @@ public class ControlbarContainer extends AnimatedGLElementContainer implements I
 		else if (button.equals(removeDuplicateVerticesButton))
 			settingChangeEvent = new DuplicateVerticesSettingChangeEvent(false);
 
+		/**
+		 * the events are only triggered on a change, so selecting the buttons of the start values doesn't trigger any
+		 */
+		for (int i = 0; i < layoutAlgorithmButtons.length; i++) {
+			if (button.equals(layoutAlgorithmButtons[i]) && LAYOUT_ALGORITHMS[i] != layoutAlgorithm) {
+				layoutAlgorithm = LAYOUT_ALGORITHMS[i];
+				settingChangeEvent = new ChangeLayoutAlgorithmEvent(layoutAlgorithm);
+			}
+		}
+		for (int i = 0; i < layoutTimeBudgetButtons.length; i++) {
+			if (button.equals(layoutTimeBudgetButtons[i]) && LAYOUT_TIME_BUDGETS_MS[i] != layoutTimeBudgetMs) {
+				layoutTimeBudgetMs = LAYOUT_TIME_BUDGETS_MS[i];
+				settingChangeEvent = new ChangeLayoutTimeBudgetEvent(layoutTimeBudgetMs);
+			}
+		}
+
 		if (settingChangeEvent != null)
 			EventPublisher.trigger(settingChangeEvent);
 
@@ -33,6 +33,8 @@ import org.caleydo.datadomain.pathway.graph.item.vertex.PathwayVertex;
 import org.caleydo.datadomain.pathway.graph.item.vertex.PathwayVertexRep;
 import org.caleydo.view.dynamicpathway.events.ChangeBubbleSetVisibilityEvent;
 import org.caleydo.view.dynamicpathway.events.ChangeFocusNodeEvent;
+import org.caleydo.view.dynamicpathway.events.ChangeLayoutAlgorithmEvent;
+import org.caleydo.view.dynamicpathway.events.ChangeLayoutTimeBudgetEvent;
 import org.caleydo.view.dynamicpathway.events.ChangeVertexEnvironmentEvent;
 import org.caleydo.view.dynamicpathway.events.ClearCanvasEvent;
 import org.caleydo.view.dynamicpathway.events.DuplicateVerticesSettingChangeEvent;
@@ -42,6 +44,8 @@ import org.caleydo.view.dynamicpathway.events.RemoveDisplayedPathwayEvent;
 import org.caleydo.view.dynamicpathway.events.ZeroDegreeNodesSettingChangeEvent;
 import org.caleydo.view.dynamicpathway.internal.serial.SerializedDynamicPathwayView;
 import org.caleydo.view.dynamicpathway.layout.DynamicPathwayRankingElement;
+import org.caleydo.view.dynamicpathway.layout.ELayoutAlgorithm;
+import org.caleydo.view.dynamicpathway.layout.ELayoutInitialization;
 import org.caleydo.view.dynamicpathway.layout.GLFruchtermanReingoldLayout;
 import org.caleydo.view.dynamicpathway.layout.GLFruchtermanReingoldLayoutBuilder;
 import org.caleydo.view.dynamicpathway.ui.ANodeElement;
@@ -70,6 +74,51 @@ public class DynamicPathwayView extends AGLElementView {
 
 	private static final String PATHWAY_RESOURCE = "KEGG";
 
+	/**
+	 * time per frame spent on the graph layout, so the view stays responsive while big graphs are laid out
+	 */
+	private static final int LAYOUT_TIME_BUDGET_MS = 12;
+
+	/**
+	 * merged graphs with at least this many nodes are laid out by a multilevel layout
+	 */
+	private static final int MULTILEVEL_LAYOUT_NODE_THRESHOLD = 1000;
+
+	/**
+	 * memory used for caching the layouts of already displayed pathway combinations
+	 */
+	private static final long LAYOUT_CACHE_SIZE_IN_BYTES = 8L * 1024L * 1024L;
+
+	/**
+	 * number of threads laying out the connected components of the graph (and the forces of the layout)
+	 */
+	private static final int LAYOUT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * number of vertices, whose last position is remembered, so re-added pathways start where they were
+	 */
+	private static final int LAYOUT_POSITION_MEMORY_NODE_COUNT = 20000;
+
+	/**
+	 * iterations correcting the layout after it was scaled to a new size of the canvas (e.g. the ranking was shown)
+	 */
+	private static final int LAYOUT_RESIZE_ITERATIONS = 20;
+
+	/**
+	 * time a whole layout should take at most, the algorithm is chosen automatically by it &amp; the size of the graph
+	 */
+	private static final int LAYOUT_ALGORITHM_TIME_BUDGET_MS = 2000;
+
+	/**
+	 * ticks of the live simulation per frame, which moves the vertices around a dragged one
+	 */
+	private static final int LAYOUT_SIMULATION_TICKS_PER_FRAME = 3;
+
+	/**
+	 * concurrent runs of a layout, of which the best is kept - one per processor, so it takes about as long as one run
+	 */
+	private static final int LAYOUT_MULTI_START_RUN_COUNT = LAYOUT_PARALLELISM;
+
 	// root view container
 	private GLElementContainer viewContainer = new GLElementContainer(new GLSizeRestrictiveFlowLayout(true, 1,
 			GLPadding.ZERO));
@@ -108,7 +157,8 @@ public class DynamicPathwayView extends AGLElementView {
 		GLElementContainer controlBarContainer = new GLElementContainer(new GLSizeRestrictiveFlowLayout(false, 3,
 				GLPadding.ZERO));
 		controlBarContainer.setSize(200, Float.NaN);
-		this.controlBar = new ControlbarContainer();
+		this.controlBar = new ControlbarContainer(pathwayLayout.getLayoutAlgorithm(),
+				pathwayLayout.getLayoutTimeBudget());
 		controlBarContainer.add(controlBar);
 		viewContainer.add(controlBarContainer);
 
@@ -191,6 +241,13 @@ public class DynamicPathwayView extends AGLElementView {
 		return eventListeners;
 	}
 
+	/**
+	 * @return the current vertex environment size of the control bar
+	 */
+	public int getNodeEnvironmentSize() {
+		return controlBar.getNodeEnvironmentSize();
+	}
+
 	@Override
 	public ASerializedView getSerializableRepresentation() {
 		return new SerializedDynamicPathwayView();
@@ -266,6 +323,16 @@ public class DynamicPathwayView extends AGLElementView {
 		readdPresentPathways();
 	}
 
+	@ListenTo
+	public void onChangeLayoutAlgorithm(ChangeLayoutAlgorithmEvent event) {
+		pathwayCanvasContainer.setLayoutAlgorithm(event.getLayoutAlgorithm());
+	}
+
+	@ListenTo
+	public void onChangeLayoutTimeBudget(ChangeLayoutTimeBudgetEvent event) {
+		pathwayCanvasContainer.setLayoutTimeBudget(event.getLayoutTimeBudgetMs());
+	}
+
 	@ListenTo
 	public void onClearCancas(ClearCanvasEvent clearCanvasEvent) {
 		PathwayGraph focusPathway = pathwayCanvasContainer.getFocusPathway();
@@ -507,7 +574,13 @@ public class DynamicPathwayView extends AGLElementView {
 	 */
 	private void createPathwayGraphView() {
 		pathwayLayout = new GLFruchtermanReingoldLayoutBuilder().repulsionMultiplier(-1.0).attractionMultiplier(18.0)
-				.buildLayout();
+				.incrementalLayout(true).convergence(0.05, 10).timeBudget(LAYOUT_TIME_BUDGET_MS)
+				.multilevelThreshold(MULTILEVEL_LAYOUT_NODE_THRESHOLD).layoutCache(LAYOUT_CACHE_SIZE_IN_BYTES)
+				.initialization(ELayoutInitialization.ORIGINAL_LAYOUT).componentLayout(true).overlapRemoval(true)
+				.parallelism(LAYOUT_PARALLELISM).positionMemory(LAYOUT_POSITION_MEMORY_NODE_COUNT)
+				.resizeIterations(LAYOUT_RESIZE_ITERATIONS).layoutAlgorithm(ELayoutAlgorithm.AUTOMATIC)
+				.layoutTimeBudget(LAYOUT_ALGORITHM_TIME_BUDGET_MS).liveSimulation(LAYOUT_SIMULATION_TICKS_PER_FRAME)
+				.multiStart(LAYOUT_MULTI_START_RUN_COUNT).chainCompression(true).buildLayout();
 
 		pathwayCanvasContainer = new DynamicPathwaysCanvas(pathwayLayout, this);
 	}
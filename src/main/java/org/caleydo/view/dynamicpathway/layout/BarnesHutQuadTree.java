@@ -0,0 +1,305 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+
+/**
+ * Quadtree used for approximating the repulsive forces of the Fruchterman &amp; Reingold layout (Barnes &amp; Hut).
+ * Cells which are far enough away from a node (cell size / distance &lt; theta) are treated as one node placed at
+ * their center of mass, which brings the repulsion step down to O(n log n).
+ *
+ * The tree is stored in flat arrays, which are reused when the tree is rebuilt in the next iteration.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class BarnesHutQuadTree {
+
+	private static final int INITIAL_CELL_CAPACITY = 64;
+
+	/**
+	 * nodes at the same position would be split up forever -> they are combined in one leaf at this depth
+	 */
+	private static final int MAX_DEPTH = 32;
+
+	private static final int EMPTY = -1;
+	private static final int MULTIPLE_BODIES = -2;
+
+	/**
+	 * opening angle: the smaller it is, the more cells are opened & the more exact the result is
+	 */
+	private final double theta;
+
+	private double[] cellCenterX;
+	private double[] cellCenterY;
+	private double[] cellHalfSize;
+	private double[] cellMass;
+	private double[] cellMassCenterX;
+	private double[] cellMassCenterY;
+	/**
+	 * index of the first of the four children, or {@link #EMPTY} if the cell is a leaf
+	 */
+	private int[] cellFirstChild;
+	/**
+	 * index of the node, if the cell is a leaf containing exactly one node
+	 */
+	private int[] cellBody;
+	private int cellCount;
+
+	/**
+	 * positions & masses the tree was built with
+	 */
+	private double[] xPositions;
+	private double[] yPositions;
+	private double[] masses;
+
+	/**
+	 * @param theta
+	 *            {@link #theta}
+	 */
+	public BarnesHutQuadTree(double theta) {
+		this.theta = theta;
+		allocateCells(INITIAL_CELL_CAPACITY);
+	}
+
+	/**
+	 * the tree can be queried by multiple threads at once, each of them needs its own stack
+	 *
+	 * @return a stack for {@link #calcRepulsiveForce(int, double, double, boolean, double[], int[])}
+	 */
+	public static int[] createStack() {
+		return new int[4 * (MAX_DEPTH + 1)];
+	}
+
+	/**
+	 * (re)builds the tree for the given positions
+	 *
+	 * @param xPositions
+	 *            x coordinates of the nodes' centers
+	 * @param yPositions
+	 *            y coordinates of the nodes' centers
+	 * @param masses
+	 *            masses of the nodes, each of them has to be bigger than 0
+	 * @param nodeCount
+	 *            how many entries of the arrays are used
+	 */
+	public void build(double[] xPositions, double[] yPositions, double[] masses, int nodeCount) {
+		this.xPositions = xPositions;
+		this.yPositions = yPositions;
+		this.masses = masses;
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < nodeCount; i++) {
+			minX = Math.min(minX, xPositions[i]);
+			minY = Math.min(minY, yPositions[i]);
+			maxX = Math.max(maxX, xPositions[i]);
+			maxY = Math.max(maxY, yPositions[i]);
+		}
+
+		cellCount = 0;
+		if (nodeCount == 0)
+			return;
+
+		double halfSize = Math.max(maxX - minX, maxY - minY) / 2.0 + 1.0;
+		addCell((minX + maxX) / 2.0, (minY + maxY) / 2.0, halfSize);
+
+		for (int i = 0; i < nodeCount; i++)
+			insert(i);
+
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (cellMass[cell] > 0.0) {
+				cellMassCenterX[cell] /= cellMass[cell];
+				cellMassCenterY[cell] /= cellMass[cell];
+			}
+		}
+	}
+
+	/**
+	 * approximates the repulsive force all other nodes have on the given node, using the same equation as
+	 * {@link FRLayoutEngine}: globalEdgeLength² / (distance * repulsionMultiplier)
+	 *
+	 * @param body
+	 *            index of the node, which's displacement is calculated
+	 * @param squaredEdgeLength
+	 *            the squared global edge length
+	 * @param repulsionMultiplier
+	 *            the repulsion multiplier, ignored if isRepulsionMultiplierSetToDistance is true
+	 * @param isRepulsionMultiplierSetToDistance
+	 *            if true the repulsion multiplier is set to the distance of the nodes
+	 * @param force
+	 *            array of size 2, the x &amp; y displacement are written into it
+	 * @param stack
+	 *            created by {@link #createStack()}, must not be used by another thread at the same time
+	 */
+	public void calcRepulsiveForce(int body, double squaredEdgeLength, double repulsionMultiplier,
+			boolean isRepulsionMultiplierSetToDistance, double[] force, int[] stack) {
+		double xForce = 0.0;
+		double yForce = 0.0;
+
+		if (cellCount == 0) {
+			force[0] = xForce;
+			force[1] = yForce;
+			return;
+		}
+
+		double xPosition = xPositions[body];
+		double yPosition = yPositions[body];
+
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+
+		while (stackSize > 0) {
+			int cell = stack[--stackSize];
+
+			if (cellMass[cell] <= 0.0 || cellBody[cell] == body)
+				continue;
+
+			double xDistance = xPosition - cellMassCenterX[cell];
+			double yDistance = yPosition - cellMassCenterY[cell];
+			double distance = Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+
+			int firstChild = cellFirstChild[cell];
+			if (firstChild != EMPTY
+					&& (containsPoint(cell, xPosition, yPosition) || 2.0 * cellHalfSize[cell] >= theta * distance)) {
+				stack[stackSize++] = firstChild;
+				stack[stackSize++] = firstChild + 1;
+				stack[stackSize++] = firstChild + 2;
+				stack[stackSize++] = firstChild + 3;
+				continue;
+			}
+
+			if (distance > 0.0) {
+				double multiplier = isRepulsionMultiplierSetToDistance ? distance : repulsionMultiplier;
+				double repulsiveForce = cellMass[cell] * squaredEdgeLength / (distance * multiplier);
+
+				xForce += (xDistance / distance) * repulsiveForce;
+				yForce += (yDistance / distance) * repulsiveForce;
+			}
+		}
+
+		force[0] = xForce;
+		force[1] = yForce;
+	}
+
+	private void insert(int body) {
+		double x = xPositions[body];
+		double y = yPositions[body];
+		double mass = masses[body];
+
+		int cell = 0;
+		int depth = 0;
+
+		while (true) {
+			boolean isEmpty = cellMass[cell] == 0.0;
+
+			cellMass[cell] += mass;
+			cellMassCenterX[cell] += x * mass;
+			cellMassCenterY[cell] += y * mass;
+
+			if (cellFirstChild[cell] != EMPTY) {
+				cell = getChild(cell, x, y);
+				depth++;
+				continue;
+			}
+
+			if (isEmpty) {
+				cellBody[cell] = body;
+				return;
+			}
+
+			if (depth >= MAX_DEPTH || cellBody[cell] == MULTIPLE_BODIES) {
+				cellBody[cell] = MULTIPLE_BODIES;
+				return;
+			}
+
+			/**
+			 * leaf already contains a node -> split it up & move the existing node one level down
+			 */
+			int existingBody = cellBody[cell];
+			cellBody[cell] = EMPTY;
+			subdivide(cell);
+
+			double existingX = xPositions[existingBody];
+			double existingY = yPositions[existingBody];
+			double existingMass = masses[existingBody];
+			int existingChild = getChild(cell, existingX, existingY);
+			cellMass[existingChild] = existingMass;
+			cellMassCenterX[existingChild] = existingX * existingMass;
+			cellMassCenterY[existingChild] = existingY * existingMass;
+			cellBody[existingChild] = existingBody;
+
+			cell = getChild(cell, x, y);
+			depth++;
+		}
+	}
+
+	private void subdivide(int cell) {
+		double quarterSize = cellHalfSize[cell] / 2.0;
+		double x = cellCenterX[cell];
+		double y = cellCenterY[cell];
+
+		// the array may be reallocated by addCell -> don't keep references to them
+		int firstChild = addCell(x - quarterSize, y - quarterSize, quarterSize);
+		addCell(x + quarterSize, y - quarterSize, quarterSize);
+		addCell(x - quarterSize, y + quarterSize, quarterSize);
+		addCell(x + quarterSize, y + quarterSize, quarterSize);
+
+		cellFirstChild[cell] = firstChild;
+	}
+
+	private int getChild(int cell, double x, double y) {
+		int child = cellFirstChild[cell];
+		if (x >= cellCenterX[cell])
+			child += 1;
+		if (y >= cellCenterY[cell])
+			child += 2;
+		return child;
+	}
+
+	private boolean containsPoint(int cell, double x, double y) {
+		double halfSize = cellHalfSize[cell];
+		return Math.abs(x - cellCenterX[cell]) <= halfSize && Math.abs(y - cellCenterY[cell]) <= halfSize;
+	}
+
+	private int addCell(double centerX, double centerY, double halfSize) {
+		if (cellCount == cellMass.length)
+			allocateCells(cellMass.length * 2);
+
+		int cell = cellCount++;
+		cellCenterX[cell] = centerX;
+		cellCenterY[cell] = centerY;
+		cellHalfSize[cell] = halfSize;
+		cellMass[cell] = 0.0;
+		cellMassCenterX[cell] = 0.0;
+		cellMassCenterY[cell] = 0.0;
+		cellFirstChild[cell] = EMPTY;
+		cellBody[cell] = EMPTY;
+		return cell;
+	}
+
+	private void allocateCells(int capacity) {
+		if (cellMass == null) {
+			cellCenterX = new double[capacity];
+			cellCenterY = new double[capacity];
+			cellHalfSize = new double[capacity];
+			cellMass = new double[capacity];
+			cellMassCenterX = new double[capacity];
+			cellMassCenterY = new double[capacity];
+			cellFirstChild = new int[capacity];
+			cellBody = new int[capacity];
+			return;
+		}
+
+		cellCenterX = Arrays.copyOf(cellCenterX, capacity);
+		cellCenterY = Arrays.copyOf(cellCenterY, capacity);
+		cellHalfSize = Arrays.copyOf(cellHalfSize, capacity);
+		cellMass = Arrays.copyOf(cellMass, capacity);
+		cellMassCenterX = Arrays.copyOf(cellMassCenterX, capacity);
+		cellMassCenterY = Arrays.copyOf(cellMassCenterY, capacity);
+		cellFirstChild = Arrays.copyOf(cellFirstChild, capacity);
+		cellBody = Arrays.copyOf(cellBody, capacity);
+	}
+
+}
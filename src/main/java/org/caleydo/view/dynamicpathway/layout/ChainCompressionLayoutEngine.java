@@ -0,0 +1,405 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lays out a graph without its chains of degree 2 nodes, which are placed along the resulting segments afterwards.
+ *
+ * Linear chains (e.g. the reactions of a metabolic pathway) make up a big part of the nodes, but only need to be
+ * straight. So every maximal chain of movable nodes with exactly two different neighbours is replaced by a single edge
+ * between its end nodes. This edge attracts with a weight decreasing with the length of the chain, so its end nodes
+ * stay further apart &amp; the masses of the chain nodes are added to its end nodes, so the edge length of the layout
+ * doesn't change. The reduced graph is laid out by another engine, after each of its iterations the chain nodes are
+ * placed at equal distances on the straight line between the end nodes of their chain.
+ *
+ * A chain, whose end nodes are already connected by an edge or another chain, would be drawn on top of it - its middle
+ * node is kept in the reduced graph then. A chain, which starts &amp; ends at the same node, keeps two of its nodes,
+ * so it becomes a triangle. Chains with at most 2 nodes of such kinds aren't reduced at all.
+ *
+ * If the graph has no chains, the engine runs on the original graph.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class ChainCompressionLayoutEngine implements ILayoutEngine {
+
+	/**
+	 * chains with at most this many nodes aren't reduced, if they would overlap another edge or form a loop
+	 */
+	private static final int MAX_KEPT_CHAIN_LENGTH = 2;
+
+	/**
+	 * lays out the reduced graph
+	 */
+	private ILayoutEngine engine;
+
+	// state of the current run
+
+	private FRLayoutState state;
+	/**
+	 * state the chains were found in - the reduced graph is created from them, when the run is started
+	 */
+	private FRLayoutState chainedState;
+	/**
+	 * number of edges of the reduced graph: the edges between kept nodes &amp; one per chain
+	 */
+	private int reducedEdgeCount;
+	/**
+	 * null if the graph has no chains
+	 */
+	private FRLayoutState reducedState;
+	/**
+	 * keptNodes[r] is the ordinal of node r of the reduced graph in the original one
+	 */
+	private int[] keptNodes;
+	/**
+	 * chain c starts at chainStarts[c], ends at chainEnds[c] &amp; consists of the nodes chainNodes[chainOffsets[c]] to
+	 * chainNodes[chainOffsets[c + 1] - 1] in this order - all ordinals of the original graph
+	 */
+	private int[] chainStarts;
+	private int[] chainEnds;
+	private int[] chainOffsets;
+	private int[] chainNodes;
+
+	/**
+	 * @param engine
+	 *            lays out the reduced graph of the next run
+	 */
+	void setEngine(ILayoutEngine engine) {
+		this.engine = engine;
+	}
+
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		start(state, width, height, false);
+	}
+
+	/**
+	 * the reduced graph is refined by the engine - the chains are placed on straight lines again
+	 */
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		start(state, width, height, true);
+	}
+
+	@Override
+	public void run() {
+		while (iterate()) {
+			// nothing to do in between
+		}
+	}
+
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		boolean isIterationNeeded = engine.iterate();
+		if (reducedState != null)
+			placeChains();
+		return isIterationNeeded;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return state == null || engine == null || engine.isFinished();
+	}
+
+	@Override
+	public int getIteration() {
+		return (engine == null) ? 0 : engine.getIteration();
+	}
+
+	/**
+	 * @return number of nodes of the graph laid out by the engine, i.e. of the reduced graph of the state, in which the
+	 *         chains were found last
+	 */
+	public int getReducedNodeCount() {
+		return (keptNodes == null) ? 0 : keptNodes.length;
+	}
+
+	/**
+	 * @return number of edges of the graph laid out by the engine, like {@link #getReducedNodeCount()}
+	 */
+	public int getReducedEdgeCount() {
+		return reducedEdgeCount;
+	}
+
+	private void start(FRLayoutState state, double width, double height, boolean isRefinement) {
+		this.state = state;
+		this.reducedState = null;
+
+		if (state != chainedState)
+			findChains(state);
+		FRLayoutState runState = (chainStarts.length > 0) ? createReducedState() : state;
+		if (isRefinement)
+			engine.startRefinement(runState, width, height);
+		else
+			engine.start(runState, width, height);
+		if (reducedState != null)
+			placeChains();
+	}
+
+	/**
+	 * finds the maximal chains by walking from every node, which isn't a chain node, along its chain neighbours - the
+	 * next run on the state uses them, so the size of the reduced graph is known before its engine is chosen
+	 *
+	 * @param state
+	 *            state of the graph - its edges &amp; fixed nodes mustn't change until the run is started
+	 */
+	void findChains(FRLayoutState state) {
+		this.state = state;
+		this.chainedState = state;
+		state.buildAdjacency();
+		int nodeCount = state.nodeCount;
+
+		boolean[] isChainNode = new boolean[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			isChainNode[i] = isChainNode(i);
+
+		/**
+		 * endpoints of the edges between nodes, which aren't chain nodes
+		 */
+		Set<Long> connectedPairs = new HashSet<Long>();
+		for (int e = 0; e < state.edgeCount; e++) {
+			int source = state.edgeSources[e];
+			int target = state.edgeTargets[e];
+			if (!isChainNode[source] && !isChainNode[target])
+				connectedPairs.add(getPairKey(source, target));
+		}
+
+		List<int[]> chains = new ArrayList<int[]>();
+		boolean[] isVisited = new boolean[nodeCount];
+		int[] walkedNodes = new int[nodeCount];
+
+		/**
+		 * the second pass handles cycles consisting only of chain nodes: the first unvisited node of a cycle is kept
+		 */
+		for (int pass = 0; pass < 2; pass++) {
+			for (int start = 0; start < nodeCount; start++) {
+				if (isChainNode[start]) {
+					if (pass == 0 || isVisited[start])
+						continue;
+					isChainNode[start] = false;
+				}
+
+				for (int a = state.adjacencyOffsets[start]; a < state.adjacencyOffsets[start + 1]; a++) {
+					int current = state.adjacentNodes[a];
+					if (!isChainNode[current] || isVisited[current])
+						continue;
+
+					int previous = start;
+					int length = 0;
+					while (isChainNode[current]) {
+						isVisited[current] = true;
+						walkedNodes[length++] = current;
+						int next = getOtherNeighbour(current, previous);
+						previous = current;
+						current = next;
+					}
+					addChain(chains, start, current, Arrays.copyOf(walkedNodes, length), isChainNode, connectedPairs);
+				}
+			}
+		}
+
+		int chainCount = chains.size();
+		chainStarts = new int[chainCount];
+		chainEnds = new int[chainCount];
+		chainOffsets = new int[chainCount + 1];
+		for (int c = 0; c < chainCount; c++)
+			chainOffsets[c + 1] = chainOffsets[c] + chains.get(c).length - 2;
+		chainNodes = new int[chainOffsets[chainCount]];
+		for (int c = 0; c < chainCount; c++) {
+			int[] chain = chains.get(c);
+			chainStarts[c] = chain[0];
+			chainEnds[c] = chain[1];
+			System.arraycopy(chain, 2, chainNodes, chainOffsets[c], chain.length - 2);
+		}
+
+		keptNodes = new int[nodeCount - chainNodes.length];
+		int r = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			if (!isChainNode[i])
+				keptNodes[r++] = i;
+		}
+
+		reducedEdgeCount = chainCount;
+		for (int e = 0; e < state.edgeCount; e++) {
+			if (!isChainNode[state.edgeSources[e]] && !isChainNode[state.edgeTargets[e]])
+				reducedEdgeCount++;
+		}
+	}
+
+	/**
+	 * a chain node is a movable node without anchor, which has exactly two edges to two different nodes
+	 */
+	private boolean isChainNode(int i) {
+		int from = state.adjacencyOffsets[i];
+		if (state.adjacencyOffsets[i + 1] - from != 2 || state.fixed[i] || !Double.isNaN(state.xAnchors[i]))
+			return false;
+
+		int first = state.adjacentNodes[from];
+		int second = state.adjacentNodes[from + 1];
+		return first != second && first != i && second != i;
+	}
+
+	/**
+	 * @return the neighbour of the chain node, which isn't the given one
+	 */
+	private int getOtherNeighbour(int chainNode, int neighbour) {
+		int first = state.adjacentNodes[state.adjacencyOffsets[chainNode]];
+		return (first != neighbour) ? first : state.adjacentNodes[state.adjacencyOffsets[chainNode] + 1];
+	}
+
+	/**
+	 * adds the chain - a loop or a chain parallel to another edge is split by keeping some of its nodes, a short one
+	 * is kept completely
+	 *
+	 * @param nodes
+	 *            the chain nodes from start to end
+	 */
+	private static void addChain(List<int[]> chains, int start, int end, int[] nodes, boolean[] isChainNode,
+			Set<Long> connectedPairs) {
+		int length = nodes.length;
+		boolean isLoop = start == end;
+		if (!isLoop && connectedPairs.add(getPairKey(start, end))) {
+			chains.add(createChain(start, end, nodes, 0, length));
+			return;
+		}
+
+		if (length <= MAX_KEPT_CHAIN_LENGTH) {
+			for (int node : nodes)
+				isChainNode[node] = false;
+			return;
+		}
+
+		/**
+		 * the kept nodes only get new neighbours, so the parts can't overlap anything else
+		 */
+		int[] keptPositions = isLoop ? new int[] { length / 3, 2 * length / 3 } : new int[] { length / 2 };
+		int partStart = start;
+		int from = 0;
+		for (int keptPosition : keptPositions) {
+			int keptNode = nodes[keptPosition];
+			isChainNode[keptNode] = false;
+			if (keptPosition > from)
+				chains.add(createChain(partStart, keptNode, nodes, from, keptPosition));
+			partStart = keptNode;
+			from = keptPosition + 1;
+		}
+		if (length > from)
+			chains.add(createChain(partStart, end, nodes, from, length));
+	}
+
+	/**
+	 * @return the start &amp; end of the chain, followed by the given range of its nodes
+	 */
+	private static int[] createChain(int start, int end, int[] nodes, int from, int to) {
+		int[] chain = new int[to - from + 2];
+		chain[0] = start;
+		chain[1] = end;
+		System.arraycopy(nodes, from, chain, 2, to - from);
+		return chain;
+	}
+
+	private static long getPairKey(int node1, int node2) {
+		return ((long) Math.min(node1, node2) << 32) | Math.max(node1, node2);
+	}
+
+	/**
+	 * creates the reduced graph: the kept nodes, the edges between them &amp; an edge per chain
+	 */
+	private FRLayoutState createReducedState() {
+		int nodeCount = state.nodeCount;
+		int[] reducedOrdinals = new int[nodeCount];
+		Arrays.fill(reducedOrdinals, -1);
+		for (int r = 0; r < keptNodes.length; r++)
+			reducedOrdinals[keptNodes[r]] = r;
+
+		int chainCount = chainStarts.length;
+		int maxEdgeCount = state.edgeCount + chainCount;
+		int[] edgeSources = new int[maxEdgeCount];
+		int[] edgeTargets = new int[maxEdgeCount];
+		double[] edgeWeights = new double[maxEdgeCount];
+		int edgeCount = 0;
+		for (int e = 0; e < state.edgeCount; e++) {
+			int source = reducedOrdinals[state.edgeSources[e]];
+			int target = reducedOrdinals[state.edgeTargets[e]];
+			if (source < 0 || target < 0)
+				continue;
+			edgeSources[edgeCount] = source;
+			edgeTargets[edgeCount] = target;
+			edgeWeights[edgeCount] = state.edgeWeights[e];
+			edgeCount++;
+		}
+
+		/**
+		 * the attraction grows with the squared distance, so the k + 1 edges of a chain of k nodes carry the same
+		 * tension over the whole span as a single edge with 1 / (k + 1)² of the weight
+		 */
+		for (int c = 0; c < chainCount; c++) {
+			int length = chainOffsets[c + 1] - chainOffsets[c];
+			edgeSources[edgeCount] = reducedOrdinals[chainStarts[c]];
+			edgeTargets[edgeCount] = reducedOrdinals[chainEnds[c]];
+			edgeWeights[edgeCount] = 1.0 / ((length + 1) * (length + 1));
+			edgeCount++;
+		}
+
+		FRLayoutState reduced = FRLayoutState.createWithoutGraph(keptNodes.length, edgeSources, edgeTargets, edgeCount);
+		System.arraycopy(edgeWeights, 0, reduced.edgeWeights, 0, edgeCount);
+		for (int r = 0; r < keptNodes.length; r++) {
+			int i = keptNodes[r];
+			reduced.nodeKeys[r] = state.nodeKeys[i];
+			reduced.xPositions[r] = state.xPositions[i];
+			reduced.yPositions[r] = state.yPositions[i];
+			reduced.widths[r] = state.widths[i];
+			reduced.heights[r] = state.heights[i];
+			reduced.masses[r] = state.masses[i];
+			reduced.fixed[r] = state.fixed[i];
+			reduced.xAnchors[r] = state.xAnchors[i];
+			reduced.yAnchors[r] = state.yAnchors[i];
+		}
+		reduced.hasAnchors = state.hasAnchors;
+
+		for (int c = 0; c < chainCount; c++) {
+			double chainMass = 0.0;
+			for (int n = chainOffsets[c]; n < chainOffsets[c + 1]; n++)
+				chainMass += state.masses[chainNodes[n]];
+			reduced.masses[reducedOrdinals[chainStarts[c]]] += chainMass / 2.0;
+			reduced.masses[reducedOrdinals[chainEnds[c]]] += chainMass / 2.0;
+		}
+
+		reducedState = reduced;
+		return reduced;
+	}
+
+	/**
+	 * copies the positions of the kept nodes into the original graph &amp; places the chain nodes at equal distances
+	 * between the end nodes of their chain
+	 */
+	private void placeChains() {
+		for (int r = 0; r < keptNodes.length; r++) {
+			state.xPositions[keptNodes[r]] = reducedState.xPositions[r];
+			state.yPositions[keptNodes[r]] = reducedState.yPositions[r];
+		}
+
+		for (int c = 0; c < chainStarts.length; c++) {
+			double startX = state.xPositions[chainStarts[c]];
+			double startY = state.yPositions[chainStarts[c]];
+			double xStep = state.xPositions[chainEnds[c]] - startX;
+			double yStep = state.yPositions[chainEnds[c]] - startY;
+			int length = chainOffsets[c + 1] - chainOffsets[c];
+			for (int n = 0; n < length; n++) {
+				int i = chainNodes[chainOffsets[c] + n];
+				double t = (n + 1.0) / (length + 1.0);
+				state.xPositions[i] = startX + xStep * t;
+				state.yPositions[i] = startY + yStep * t;
+			}
+		}
+	}
+
+}
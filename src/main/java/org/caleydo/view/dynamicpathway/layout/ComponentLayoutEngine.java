@@ -0,0 +1,645 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out the connected components of a graph independently & packs them into the area afterwards.
+ *
+ * Nodes of different components would only push each other towards the border, so every component gets its own
+ * {@link FRLayoutState} &amp; engine (chosen by the {@link ELayoutAlgorithm}), which lays it out in an area
+ * proportional to its size. If the engine gets a {@link ForkJoinPool}, the components are laid out on it, each one
+ * by a sequential engine. Components with less than {@link #MIN_LAID_OUT_COMPONENT_SIZE} nodes are placed directly.
+ *
+ * After every iteration the bounding boxes of the components are packed into shelves, sorted by their height. If the
+ * shelves don't fit into the area, the positions are scaled down.
+ *
+ * Components with fixed or anchored nodes (e.g. the pinned focus node) can't be moved as a whole, so they are laid
+ * out in place: their area is centered on the constrained nodes &amp; their positions are neither moved nor scaled by
+ * the packing. The other components are packed into the biggest free strip beside, above or below them.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class ComponentLayoutEngine implements ILayoutEngine {
+
+	/**
+	 * smaller components are placed without any iteration
+	 */
+	private static final int MIN_LAID_OUT_COMPONENT_SIZE = 3;
+
+	/**
+	 * shelf widths tried by the packing, relative to the width, which would give the area's aspect ratio
+	 */
+	private static final double[] SHELF_WIDTH_FACTORS = { 1.0, 1.15, 1.3, 1.5, 1.75 };
+
+	/**
+	 * the engines of the components are created with the builder's settings
+	 */
+	private final GLFruchtermanReingoldLayoutBuilder builder;
+	/**
+	 * null if the components are laid out one after the other in the calling thread
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * algorithm of the components' engines
+	 */
+	private ELayoutAlgorithm layoutAlgorithm;
+	/**
+	 * time budget of the whole graph - {@link ELayoutAlgorithm#AUTOMATIC} chooses the strategy of a component by its
+	 * share of it
+	 */
+	private int layoutTimeBudgetMs;
+
+	// state of the current run
+
+	private FRLayoutState state;
+	private double width;
+	private double height;
+	private int iteration;
+	/**
+	 * space left around the bounding box of a component
+	 */
+	private double margin;
+
+	private Component[] components;
+	private ComponentsTask componentsTask;
+	/**
+	 * size of the last packing
+	 */
+	private double usedWidth;
+	private double usedHeight;
+
+	/**
+	 * @param builder
+	 *            contains the settings of the layout
+	 * @param pool
+	 *            pool the components are laid out on, it's owned by the caller - null for a sequential engine
+	 */
+	ComponentLayoutEngine(GLFruchtermanReingoldLayoutBuilder builder, ForkJoinPool pool) {
+		this.builder = builder;
+		this.layoutAlgorithm = builder.layoutAlgorithm;
+		this.layoutTimeBudgetMs = builder.layoutTimeBudgetMs;
+		this.pool = pool;
+	}
+
+	/**
+	 * @param layoutAlgorithm
+	 *            algorithm used for the components from the next run on
+	 */
+	void setLayoutAlgorithm(ELayoutAlgorithm layoutAlgorithm) {
+		this.layoutAlgorithm = layoutAlgorithm;
+	}
+
+	/**
+	 * @param layoutTimeBudgetMs
+	 *            time budget of the whole graph from the next run on
+	 */
+	void setLayoutTimeBudget(int layoutTimeBudgetMs) {
+		this.layoutTimeBudgetMs = layoutTimeBudgetMs;
+	}
+
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		start(state, width, height, false);
+	}
+
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		start(state, width, height, true);
+	}
+
+	@Override
+	public void run() {
+		if (isFinished())
+			return;
+
+		/**
+		 * every component runs all of its iterations at once, there is nothing to show in between
+		 */
+		if (pool == null) {
+			for (Component component : components) {
+				if (component.engine != null)
+					component.engine.run();
+			}
+		} else {
+			componentsTask.isRunToEnd = true;
+			componentsTask.reinitialize();
+			pool.invoke(componentsTask);
+		}
+
+		iteration++;
+		pack();
+	}
+
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		if (pool == null) {
+			for (Component component : components)
+				component.iterate();
+		} else {
+			componentsTask.isRunToEnd = false;
+			componentsTask.reinitialize();
+			pool.invoke(componentsTask);
+		}
+
+		iteration++;
+		pack();
+
+		return !isFinished();
+	}
+
+	@Override
+	public boolean isFinished() {
+		if (state == null)
+			return true;
+
+		for (Component component : components) {
+			if (component.engine != null && !component.engine.isFinished())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of iterations of the current run, in which at least one component was iterated
+	 */
+	@Override
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * @return number of components of the current run
+	 */
+	public int getComponentCount() {
+		return (components == null) ? 0 : components.length;
+	}
+
+	/**
+	 * splits the state into its components & starts their engines
+	 */
+	private void start(FRLayoutState state, double width, double height, boolean isRefinement) {
+		this.state = state;
+		this.width = width;
+		this.height = height;
+		this.iteration = 0;
+
+		double totalMass = Math.max(state.getTotalMass(), 1.0);
+		this.margin = Math.sqrt(width * height / totalMass) / 2.0;
+
+		state.findComponents();
+		components = new Component[state.componentCount];
+		int[] componentSizes = new int[state.componentCount];
+		for (int i = 0; i < state.nodeCount; i++)
+			componentSizes[state.nodeComponents[i]]++;
+		for (int c = 0; c < components.length; c++)
+			components[c] = new Component(componentSizes[c]);
+
+		/**
+		 * ordinal of each node in its component
+		 */
+		int[] componentIndices = new int[state.nodeCount];
+		for (int i = 0; i < state.nodeCount; i++) {
+			Component component = components[state.nodeComponents[i]];
+			componentIndices[i] = component.nodeCount;
+			component.nodes[component.nodeCount++] = i;
+		}
+
+		for (Component component : components) {
+			component.createState(state, componentIndices);
+
+			/**
+			 * every component gets the same area per node as the whole graph, so the edge lengths are the same
+			 */
+			double areaFactor = Math.sqrt(component.state.getTotalMass() / totalMass);
+			component.width = width * areaFactor;
+			component.height = height * areaFactor;
+			if (component.isConstrained)
+				component.centerAreaOnConstraints(width, height);
+			else
+				component.fitIntoArea();
+
+			if (component.nodeCount < MIN_LAID_OUT_COMPONENT_SIZE) {
+				if (!component.isConstrained)
+					component.placeDirectly(margin);
+				continue;
+			}
+
+			component.engine = createEngine(component.nodeCount, component.state.edgeCount);
+			if (isRefinement)
+				component.engine.startRefinement(component.state, component.width, component.height);
+			else
+				component.engine.start(component.state, component.width, component.height);
+		}
+
+		ComponentTask[] subTasks = new ComponentTask[components.length];
+		for (int c = 0; c < components.length; c++)
+			subTasks[c] = new ComponentTask(components[c]);
+		componentsTask = new ComponentsTask(subTasks);
+
+		pack();
+	}
+
+	/**
+	 * @return a sequential engine for a component with the given number of nodes &amp; edges
+	 */
+	private ILayoutEngine createEngine(int nodeCount, int edgeCount) {
+		if (layoutAlgorithm == ELayoutAlgorithm.STRESS_SGD)
+			return new SGDStressLayoutEngine(builder);
+		if (layoutAlgorithm == ELayoutAlgorithm.PIVOT_MDS)
+			return new PivotMDSLayoutEngine();
+		if (layoutAlgorithm == ELayoutAlgorithm.LAYERED)
+			return new LayeredLayoutEngine(null);
+
+		FRLayoutEngine engine = new FRLayoutEngine(builder, null);
+		if (layoutAlgorithm == ELayoutAlgorithm.AUTOMATIC) {
+			/**
+			 * the components share the budget by their number of nodes - each one is laid out on a single thread of
+			 * the pool, so the strategy is chosen for a parallelism of 1
+			 */
+			int componentTimeBudgetMs = (int) Math.max(1L, (long) layoutTimeBudgetMs * nodeCount / state.nodeCount);
+			ELayoutStrategy strategy = LayoutStrategySelector.select(nodeCount, edgeCount, builder.maxIterations, 1,
+					componentTimeBudgetMs);
+			engine.setRepulsionMode(strategy.getRepulsionMode());
+			return strategy.isMultilevel() ? new FRMultilevelLayoutEngine(builder, engine) : engine;
+		}
+
+		if (nodeCount >= builder.multilevelNodeThreshold)
+			return new FRMultilevelLayoutEngine(builder, engine);
+		return engine;
+	}
+
+	/**
+	 * places the bounding boxes of the components into shelves & writes the resulting positions into the state - the
+	 * constrained components keep their place, the others are packed into the free area around them
+	 */
+	private void pack() {
+		Integer[] order = new Integer[components.length];
+		int packedCount = 0;
+		double constrainedMinX = Double.POSITIVE_INFINITY;
+		double constrainedMinY = Double.POSITIVE_INFINITY;
+		double constrainedMaxX = Double.NEGATIVE_INFINITY;
+		double constrainedMaxY = Double.NEGATIVE_INFINITY;
+		for (int c = 0; c < components.length; c++) {
+			Component component = components[c];
+			component.updateBoundingBox(margin);
+			if (component.isConstrained) {
+				double boxMinX = component.xOrigin + component.boxMinX;
+				double boxMinY = component.yOrigin + component.boxMinY;
+				constrainedMinX = Math.min(constrainedMinX, boxMinX);
+				constrainedMinY = Math.min(constrainedMinY, boxMinY);
+				constrainedMaxX = Math.max(constrainedMaxX, boxMinX + component.boxWidth);
+				constrainedMaxY = Math.max(constrainedMaxY, boxMinY + component.boxHeight);
+			} else {
+				order[packedCount++] = c;
+			}
+		}
+		order = Arrays.copyOf(order, packedCount);
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer component1, Integer component2) {
+				return Double.compare(components[component2].boxHeight, components[component1].boxHeight);
+			}
+		});
+
+		/**
+		 * x, y, width &amp; height of the areas the packing may be placed in: the whole area or the strips left, right,
+		 * above &amp; below the constrained components
+		 */
+		double[][] freeAreas;
+		if (packedCount == components.length) {
+			freeAreas = new double[][] { { 0.0, 0.0, width, height } };
+		} else {
+			constrainedMinX = Math.max(constrainedMinX, 0.0);
+			constrainedMinY = Math.max(constrainedMinY, 0.0);
+			constrainedMaxX = Math.min(constrainedMaxX, width);
+			constrainedMaxY = Math.min(constrainedMaxY, height);
+			freeAreas = new double[][] { { 0.0, 0.0, constrainedMinX, height },
+					{ constrainedMaxX, 0.0, width - constrainedMaxX, height },
+					{ 0.0, 0.0, width, constrainedMinY }, { 0.0, constrainedMaxY, width, height - constrainedMaxY } };
+		}
+
+		/**
+		 * the packing is placed into the free area, in which it has to be scaled down least - if there is no free area
+		 * at all, it overlaps the constrained components
+		 */
+		double[] bestArea = { 0.0, 0.0, width, height };
+		double bestShelfWidth = 0.0;
+		double bestScale = 0.0;
+		if (packedCount > 0) {
+			for (double[] freeArea : freeAreas) {
+				double shelfWidth = findShelfWidth(order, freeArea[2], freeArea[3]);
+				double scale = packIntoShelves(order, shelfWidth, freeArea[2], freeArea[3]);
+				if (scale > bestScale) {
+					bestArea = freeArea;
+					bestShelfWidth = shelfWidth;
+					bestScale = scale;
+				}
+			}
+			if (bestScale <= 0.0) {
+				bestArea = new double[] { 0.0, 0.0, width, height };
+				bestShelfWidth = findShelfWidth(order, width, height);
+			}
+		}
+		double scale = packIntoShelves(order, bestShelfWidth, bestArea[2], bestArea[3]);
+
+		double xOffset = bestArea[0] + (bestArea[2] - usedWidth * scale) / 2.0;
+		double yOffset = bestArea[1] + (bestArea[3] - usedHeight * scale) / 2.0;
+
+		for (Component component : components) {
+			for (int i = 0; i < component.nodeCount; i++) {
+				int node = component.nodes[i];
+				if (component.isConstrained) {
+					state.xPositions[node] = component.xOrigin + component.state.xPositions[i];
+					state.yPositions[node] = component.yOrigin + component.state.yPositions[i];
+				} else {
+					state.xPositions[node] = xOffset
+							+ (component.boxX + component.state.xPositions[i] - component.boxMinX) * scale;
+					state.yPositions[node] = yOffset
+							+ (component.boxY + component.state.yPositions[i] - component.boxMinY) * scale;
+				}
+			}
+		}
+	}
+
+	/**
+	 * the shelves are about as wide as needed for the packing to have the area's aspect ratio - as the shelves aren't
+	 * filled completely, some wider ones are tried, too
+	 *
+	 * @param order
+	 *            the packed components sorted by decreasing height
+	 * @return the shelf width, for which the packing has to be scaled down least
+	 */
+	private double findShelfWidth(Integer[] order, double areaWidth, double areaHeight) {
+		double maxBoxWidth = 0.0;
+		double totalBoxArea = 0.0;
+		for (int c : order) {
+			maxBoxWidth = Math.max(maxBoxWidth, components[c].boxWidth);
+			totalBoxArea += components[c].boxWidth * components[c].boxHeight;
+		}
+
+		double minShelfWidth = Math.max(maxBoxWidth, Math.sqrt(totalBoxArea * areaWidth / Math.max(areaHeight, 1.0)));
+		double bestShelfWidth = minShelfWidth;
+		double bestScale = 0.0;
+		for (double widthFactor : SHELF_WIDTH_FACTORS) {
+			double scale = packIntoShelves(order, minShelfWidth * widthFactor, areaWidth, areaHeight);
+			if (scale > bestScale) {
+				bestScale = scale;
+				bestShelfWidth = minShelfWidth * widthFactor;
+			}
+		}
+		return bestShelfWidth;
+	}
+
+	/**
+	 * sets the positions of the boxes in the packing
+	 *
+	 * @param order
+	 *            the packed components sorted by decreasing height
+	 * @param shelfWidth
+	 *            maximal width of a shelf, only exceeded by boxes, which are wider themselves
+	 * @param areaWidth
+	 *            width of the area the packing is placed in
+	 * @param areaHeight
+	 *            height of the area the packing is placed in
+	 * @return the factor the packing has to be scaled with to fit into the area, at most 1
+	 */
+	private double packIntoShelves(Integer[] order, double shelfWidth, double areaWidth, double areaHeight) {
+		double x = 0.0;
+		double y = 0.0;
+		double currentShelfHeight = 0.0;
+		usedWidth = 0.0;
+		for (int c : order) {
+			Component component = components[c];
+			if (x > 0.0 && x + component.boxWidth > shelfWidth) {
+				y += currentShelfHeight;
+				x = 0.0;
+				currentShelfHeight = 0.0;
+			}
+			component.boxX = x;
+			component.boxY = y;
+			x += component.boxWidth;
+			currentShelfHeight = Math.max(currentShelfHeight, component.boxHeight);
+			usedWidth = Math.max(usedWidth, x);
+		}
+		usedHeight = y + currentShelfHeight;
+
+		return Math.min(1.0, Math.min(areaWidth / Math.max(usedWidth, 1.0), areaHeight / Math.max(usedHeight, 1.0)));
+	}
+
+	private static final class Component {
+		private final int[] nodes;
+		private int nodeCount = 0;
+		private FRLayoutState state;
+		/**
+		 * null if the component is placed directly
+		 */
+		private ILayoutEngine engine;
+		private double width;
+		private double height;
+
+		/**
+		 * if true, a node is fixed or anchored, so the component is laid out in place
+		 */
+		private boolean isConstrained;
+		/**
+		 * position of the component's area in the area of the graph - only used for constrained components
+		 */
+		private double xOrigin;
+		private double yOrigin;
+
+		/**
+		 * bounding box of the nodes incl. margin & its position in the packing
+		 */
+		private double boxMinX;
+		private double boxMinY;
+		private double boxWidth;
+		private double boxHeight;
+		private double boxX;
+		private double boxY;
+
+		public Component(int size) {
+			this.nodes = new int[size];
+		}
+
+		/**
+		 * copies the nodes & edges of the component from the state of the whole graph
+		 */
+		public void createState(FRLayoutState graphState, int[] componentIndices) {
+			int component = graphState.nodeComponents[nodes[0]];
+			int[] edgeSources = new int[graphState.edgeCount];
+			int[] edgeTargets = new int[graphState.edgeCount];
+			int edgeCount = 0;
+			for (int e = 0; e < graphState.edgeCount; e++) {
+				if (graphState.nodeComponents[graphState.edgeSources[e]] != component)
+					continue;
+				edgeSources[edgeCount] = componentIndices[graphState.edgeSources[e]];
+				edgeTargets[edgeCount] = componentIndices[graphState.edgeTargets[e]];
+				edgeCount++;
+			}
+
+			state = FRLayoutState.createWithoutGraph(nodeCount, edgeSources, edgeTargets, edgeCount);
+			for (int e = 0, c = 0; e < graphState.edgeCount; e++) {
+				if (graphState.nodeComponents[graphState.edgeSources[e]] == component)
+					state.edgeWeights[c++] = graphState.edgeWeights[e];
+			}
+			for (int i = 0; i < nodeCount; i++) {
+				int node = nodes[i];
+				state.xPositions[i] = graphState.xPositions[node];
+				state.yPositions[i] = graphState.yPositions[node];
+				state.widths[i] = graphState.widths[node];
+				state.heights[i] = graphState.heights[node];
+				state.masses[i] = graphState.masses[node];
+				state.fixed[i] = graphState.fixed[node];
+				state.xAnchors[i] = graphState.xAnchors[node];
+				state.yAnchors[i] = graphState.yAnchors[node];
+				state.hasAnchors |= !Double.isNaN(state.xAnchors[i]);
+				isConstrained |= state.fixed[i];
+			}
+			isConstrained |= state.hasAnchors;
+		}
+
+		/**
+		 * centers the component's area on its fixed &amp; anchored nodes, as far as it fits into the area of the graph,
+		 * &amp; moves the positions &amp; anchors into it
+		 */
+		public void centerAreaOnConstraints(double graphWidth, double graphHeight) {
+			double xSum = 0.0;
+			double ySum = 0.0;
+			int constraintCount = 0;
+			for (int i = 0; i < nodeCount; i++) {
+				if (state.fixed[i]) {
+					xSum += state.xPositions[i];
+					ySum += state.yPositions[i];
+					constraintCount++;
+				} else if (!Double.isNaN(state.xAnchors[i])) {
+					xSum += state.xAnchors[i];
+					ySum += state.yAnchors[i];
+					constraintCount++;
+				}
+			}
+
+			xOrigin = Math.max(0.0, Math.min(graphWidth - width, xSum / constraintCount - width / 2.0));
+			yOrigin = Math.max(0.0, Math.min(graphHeight - height, ySum / constraintCount - height / 2.0));
+			for (int i = 0; i < nodeCount; i++) {
+				state.xPositions[i] -= xOrigin;
+				state.yPositions[i] -= yOrigin;
+				state.xAnchors[i] -= xOrigin;
+				state.yAnchors[i] -= yOrigin;
+			}
+		}
+
+		/**
+		 * scales the current positions into the component's area, keeping their aspect ratio
+		 */
+		public void fitIntoArea() {
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < nodeCount; i++) {
+				minX = Math.min(minX, state.xPositions[i]);
+				minY = Math.min(minY, state.yPositions[i]);
+				maxX = Math.max(maxX, state.xPositions[i]);
+				maxY = Math.max(maxY, state.yPositions[i]);
+			}
+
+			double border = width / 50.0;
+			double scale = Math.min((width - 2.0 * border) / Math.max(maxX - minX, 1.0), (height - 2.0 * border)
+					/ Math.max(maxY - minY, 1.0));
+			for (int i = 0; i < nodeCount; i++) {
+				state.xPositions[i] = width / 2.0 + (state.xPositions[i] - (minX + maxX) / 2.0) * scale;
+				state.yPositions[i] = height / 2.0 + (state.yPositions[i] - (minY + maxY) / 2.0) * scale;
+			}
+		}
+
+		/**
+		 * a single node is placed at the center, two nodes next to each other
+		 */
+		public void placeDirectly(double distance) {
+			for (int i = 0; i < nodeCount; i++) {
+				state.xPositions[i] = width / 2.0 + (i - (nodeCount - 1) / 2.0) * distance;
+				state.yPositions[i] = height / 2.0;
+			}
+		}
+
+		public void iterate() {
+			if (engine != null && !engine.isFinished())
+				engine.iterate();
+		}
+
+		public void updateBoundingBox(double margin) {
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < nodeCount; i++) {
+				minX = Math.min(minX, state.xPositions[i] - state.widths[i] / 2.0);
+				minY = Math.min(minY, state.yPositions[i] - state.heights[i] / 2.0);
+				maxX = Math.max(maxX, state.xPositions[i] + state.widths[i] / 2.0);
+				maxY = Math.max(maxY, state.yPositions[i] + state.heights[i] / 2.0);
+			}
+
+			boxMinX = minX - margin;
+			boxMinY = minY - margin;
+			boxWidth = maxX - minX + 2.0 * margin;
+			boxHeight = maxY - minY + 2.0 * margin;
+		}
+	}
+
+	/**
+	 * iterates or runs the engine of one component
+	 */
+	private static final class ComponentTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Component component;
+		private boolean isRunToEnd;
+
+		public ComponentTask(Component component) {
+			this.component = component;
+		}
+
+		@Override
+		protected void compute() {
+			if (component.engine == null)
+				return;
+			if (isRunToEnd)
+				component.engine.run();
+			else
+				component.iterate();
+		}
+	}
+
+	/**
+	 * executes the tasks of all components on the pool & waits for them
+	 */
+	private static final class ComponentsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final ComponentTask[] subTasks;
+		private boolean isRunToEnd;
+
+		public ComponentsTask(ComponentTask[] subTasks) {
+			this.subTasks = subTasks;
+		}
+
+		@Override
+		protected void compute() {
+			for (ComponentTask subTask : subTasks) {
+				subTask.isRunToEnd = isRunToEnd;
+				subTask.reinitialize();
+			}
+			invokeAll(subTasks);
+		}
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * Defines how the temperature (i.e. the maximal displacement of a node) of the Fruchterman &amp; Reingold layout
+ * changes from iteration to iteration
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public enum ECoolingSchedule {
+	/**
+	 * the temperature is decreased by the same cooldown every iteration, until it reaches 0 after the last iteration
+	 */
+	LINEAR,
+	/**
+	 * adaptive step length of Yifan Hu ("Efficient and High Quality Force-Directed Graph Drawing"): the temperature is
+	 * increased after several iterations, which decreased the energy, &amp; decreased as soon as the energy rises
+	 */
+	ADAPTIVE;
+}
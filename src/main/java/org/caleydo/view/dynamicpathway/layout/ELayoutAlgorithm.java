@@ -0,0 +1,34 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * The algorithms the {@link GLFruchtermanReingoldLayout} can use for calculating the node positions
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public enum ELayoutAlgorithm {
+	/**
+	 * force directed layout, see {@link FRLayoutEngine} - big graphs are laid out by the
+	 * {@link FRMultilevelLayoutEngine}
+	 */
+	FRUCHTERMAN_REINGOLD,
+	/**
+	 * stress majorization by stochastic gradient descent, see {@link SGDStressLayoutEngine}
+	 */
+	STRESS_SGD,
+	/**
+	 * Fruchterman &amp; Reingold with exact repulsion, Barnes-Hut repulsion or the multilevel variant - chosen by the
+	 * size of the graph &amp; the layout time budget, see {@link ELayoutStrategy}
+	 */
+	AUTOMATIC,
+	/**
+	 * fast layout by Pivot-MDS in a single iteration, see {@link PivotMDSLayoutEngine} - for big graphs, whose force
+	 * directed layout takes too long
+	 */
+	PIVOT_MDS,
+	/**
+	 * layers from top to bottom along the direction of the edges, see {@link LayeredLayoutEngine} - for directed flows
+	 * like metabolic &amp; signalling pathways
+	 */
+	LAYERED;
+}
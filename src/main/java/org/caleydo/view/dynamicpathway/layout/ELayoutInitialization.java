@@ -0,0 +1,24 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * Defines the start positions of a (not incremental) layout of the {@link GLFruchtermanReingoldLayout}
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public enum ELayoutInitialization {
+	/**
+	 * the layout starts from the current positions of the nodes & runs all iterations
+	 */
+	CURRENT_POSITIONS,
+	/**
+	 * the original layouts of the nodes (e.g. the KEGG coordinates of the pathways) are fitted into the area next to
+	 * each other, see {@link OriginalLayoutInitializer} - the layout only refines them with a low temperature
+	 */
+	ORIGINAL_LAYOUT,
+	/**
+	 * the nodes are placed by the graph distances to a few pivot nodes, see {@link PivotMDS} - the layout only refines
+	 * them with a low temperature
+	 */
+	PIVOT_MDS;
+}
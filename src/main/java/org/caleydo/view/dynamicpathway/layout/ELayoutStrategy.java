@@ -0,0 +1,40 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * The variants of the Fruchterman &amp; Reingold layout, {@link ELayoutAlgorithm#AUTOMATIC} chooses from by the size
+ * of the graph &amp; the layout time budget (see {@link LayoutStrategySelector})
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public enum ELayoutStrategy {
+	/**
+	 * {@link FRLayoutEngine} with {@link ERepulsionMode#EXACT} repulsion - for small graphs
+	 */
+	EXACT(ERepulsionMode.EXACT, false),
+	/**
+	 * {@link FRLayoutEngine} with {@link ERepulsionMode#BARNES_HUT} repulsion - for medium graphs
+	 */
+	BARNES_HUT(ERepulsionMode.BARNES_HUT, false),
+	/**
+	 * {@link FRMultilevelLayoutEngine}, which refines the levels with {@link ERepulsionMode#BARNES_HUT} repulsion -
+	 * for big graphs
+	 */
+	MULTILEVEL(ERepulsionMode.BARNES_HUT, true);
+
+	private final ERepulsionMode repulsionMode;
+	private final boolean isMultilevel;
+
+	private ELayoutStrategy(ERepulsionMode repulsionMode, boolean isMultilevel) {
+		this.repulsionMode = repulsionMode;
+		this.isMultilevel = isMultilevel;
+	}
+
+	public ERepulsionMode getRepulsionMode() {
+		return repulsionMode;
+	}
+
+	public boolean isMultilevel() {
+		return isMultilevel;
+	}
+}
@@ -0,0 +1,23 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * Defines how the repulsive forces of the {@link GLFruchtermanReingoldLayout} are calculated
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public enum ERepulsionMode {
+	/**
+	 * every node repels every other node - O(n²) per iteration
+	 */
+	EXACT,
+	/**
+	 * far away nodes are combined to their center of mass using a {@link BarnesHutQuadTree} - O(n log n) per iteration
+	 */
+	BARNES_HUT,
+	/**
+	 * only nodes closer than 2 * globalEdgeLength repulse each other, found using a {@link RepulsionGrid} (grid
+	 * variant of the original Fruchterman &amp; Reingold paper) - O(n) per iteration for evenly distributed nodes
+	 */
+	GRID;
+}
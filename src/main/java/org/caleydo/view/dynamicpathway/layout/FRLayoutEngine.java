@@ -0,0 +1,1108 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the iterations of the Fruchterman &amp; Reingold algorithm on a {@link FRLayoutState}.
+ *
+ * All per-iteration data is kept in the state's primitive arrays, so an iteration doesn't create any objects. A run is
+ * started with {@link #start(FRLayoutState, double, double)} and is then either executed completely by {@link #run()}
+ * or iteration by iteration by {@link #iterate()}.
+ *
+ * If the engine gets a {@link ForkJoinPool}, the forces are calculated on it: the repulsion is split by
+ * node ranges, the attraction is accumulated in separate displacement buffers per block of edges, which are summed up
+ * at the end of the iteration. Since neither the blocks nor the order of the summation depend on the number of
+ * threads, the result is exactly the same as the one of the sequential calculation.
+ *
+ * A laid out state can be kept in a live simulation ({@link #startSimulation(FRLayoutState, double, double)}) like
+ * d3-force: every node has an alpha, which limits its displacement per tick to alpha * globalEdgeLength &amp; decays
+ * towards the node's alpha target. Dragging a node fixes it &amp; reheats the nodes around it, releasing it lets them
+ * cool down again.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class FRLayoutEngine implements ILayoutEngine {
+
+	/**
+	 * the edges are split into blocks of at least this size, each with its own displacement buffer
+	 */
+	private static final int MIN_ATTRACTION_BLOCK_SIZE = 256;
+	private static final int MAX_ATTRACTION_BLOCK_COUNT = 32;
+
+	/**
+	 * more ranges than threads, so threads which are done early can take over work of others
+	 */
+	private static final int NODE_RANGES_PER_THREAD = 4;
+
+	/**
+	 * a refinement of an initial layout runs maxIterations / REFINEMENT_ITERATION_DIVISOR iterations
+	 */
+	private static final int REFINEMENT_ITERATION_DIVISOR = 10;
+
+	/**
+	 * Defines how many times the nodes are displaced.
+	 */
+	private final int maxIterations;
+
+	/**
+	 * number of iterations of an incremental run, in which only the new nodes are moved
+	 */
+	private final int incrementalIterations;
+
+	/**
+	 * The run stops early, if either the relative change of the energy or the maximal displacement (relative to the
+	 * globalEdgeLength) stays below this tolerance for {@link #convergenceIterations} consecutive iterations. 0
+	 * disables the convergence detection.
+	 *
+	 * The energy alone keeps fluctuating in small graphs, since the nodes at the border are placed back randomly, so
+	 * a small displacement counts as stable as well.
+	 */
+	private final double convergenceTolerance;
+	private final int convergenceIterations;
+
+	/**
+	 * If temperature & cooldown are not set by the user, they are set when a run is started. In order to not override
+	 * the user's setting, we have to save (in the constructor) if it was set or not
+	 */
+	private final boolean isTemperatureAndCooldownSetByUser;
+	private final double userTemperature;
+	private final double userCooldown;
+
+	/**
+	 * Standard calculation may not be applicable for the current graph. (e.g. graph is too sparse) If the
+	 * repulsionMultiplier is set higher, than not connected nodes are farer apart and vice versa.
+	 *
+	 * If it is set to -1, it is set to the distance between the 2 nodes. Since the repulsionMultiplier is inversely
+	 * proportional to the repulsion force, this strongly limits the repulsion force
+	 */
+	private final double repulsionMultiplier;
+	private final boolean isRepulsionMultiplierSetToDistance;
+
+	/**
+	 * Standard calculation may not be applicable for the current graph. (e.g. graph is too sparse) If the
+	 * attractionMultiplier is set smaller, than connected nodes are closer together and vice versa.
+	 *
+	 * If it is set to -1, it is set to the GlobalEdgeLength. Since the attractionMultiplier is inversely proportional
+	 * to the attraction force, this strongly limits the attraction force
+	 */
+	private final double userAttractionMultiplier;
+
+	/**
+	 * in {@link ERepulsionMode#GRID} nodes farther away than this factor * globalEdgeLength don't repulse each other
+	 */
+	private static final double GRID_CUTOFF_FACTOR = 2.0;
+
+	/**
+	 * {@link ECoolingSchedule#ADAPTIVE}: the temperature is multiplied or divided by this factor - Hu's 0.9 shrinks it
+	 * too fast, as the nodes placed back by the border make the energy noisy
+	 */
+	private static final double ADAPTIVE_COOLING_FACTOR = 0.97;
+	/**
+	 * {@link ECoolingSchedule#ADAPTIVE}: number of consecutive iterations with decreasing energy, after which the
+	 * temperature is increased
+	 */
+	private static final int ADAPTIVE_PROGRESS_ITERATIONS = 5;
+	/**
+	 * {@link ECoolingSchedule#ADAPTIVE}: the run stops, if the temperature fell below this fraction of the
+	 * globalEdgeLength
+	 */
+	private static final double ADAPTIVE_MIN_TEMPERATURE = 0.001;
+
+	private final ECoolingSchedule coolingSchedule;
+
+	/**
+	 * live simulation: a node, whose alpha &amp; alpha target are below this, isn't moved anymore
+	 */
+	private static final double SIMULATION_MIN_ALPHA = 0.001;
+	/**
+	 * live simulation: alpha of the dragged node's neighbours - it falls off linearly with their distance to it &amp;
+	 * nodes more than {@link #DRAG_REHEAT_HOPS} edges away aren't reheated
+	 */
+	private static final double DRAG_ALPHA = 0.3;
+	private static final int DRAG_REHEAT_HOPS = 4;
+	/**
+	 * live simulation: fraction of the distance to its target an alpha decays by per tick - it cools down from the
+	 * drag's alpha to the minimum in about 300 ticks, like in d3-force
+	 */
+	private static final double SIMULATION_ALPHA_DECAY = 1.0 - Math.pow(SIMULATION_MIN_ALPHA / DRAG_ALPHA, 1.0 / 300.0);
+
+	/**
+	 * weight of the virtual edge, which pulls a node towards its anchor
+	 */
+	private final double anchorWeight;
+
+	/**
+	 * can be changed between the runs - the quad tree &amp; grid are created, when they are needed first
+	 */
+	private ERepulsionMode repulsionMode;
+	private final double barnesHutTheta;
+	private BarnesHutQuadTree quadTree;
+	private RepulsionGrid grid;
+
+	/**
+	 * null if the forces are calculated in the calling thread
+	 */
+	private final ForkJoinPool pool;
+	private final int parallelism;
+
+	private final boolean isRandomSeedSet;
+	private final long randomSeed;
+
+	// state of the current run
+
+	private FRLayoutState state;
+	private double width;
+	private double height;
+	/**
+	 * The optimal edge length for all edges. Used for the attraction & repulsion equations.
+	 */
+	private double globalEdgeLength;
+	private double attractionMultiplier;
+	/**
+	 * Restricts the maximal displacement in the current iteration.
+	 */
+	private double temperature;
+	/**
+	 * Defines the subtrahend of the temperature - updated in each iteration.
+	 */
+	private double cooldown;
+	/**
+	 * {@link ECoolingSchedule#ADAPTIVE}: the temperature of the first iteration, which is never exceeded & the number
+	 * of consecutive iterations, which decreased the energy
+	 */
+	private double maxTemperature;
+	private int progressIterationCount;
+	private int iteration;
+	/**
+	 * iterations of the current run: {@link #maxIterations} or {@link #incrementalIterations}
+	 */
+	private int runIterations;
+	/**
+	 * sum of the squared displacements (i.e. forces) of the last iteration
+	 */
+	private double energy;
+	/**
+	 * longest distance a node moved in the last iteration
+	 */
+	private double maxDisplacement;
+	/**
+	 * number of consecutive iterations, which didn't change the energy & positions more than the tolerance
+	 */
+	private int stableIterationCount;
+	private boolean isConverged;
+	/**
+	 * used for placing nodes, which left the area, randomly near the border
+	 */
+	private Random random;
+
+	private double[][] xAttractionBuffers;
+	private double[][] yAttractionBuffers;
+	private ForceTask forceTask;
+	private ReductionTask reductionTask;
+
+	// live simulation
+
+	private boolean isSimulation;
+	/**
+	 * per node: the alpha &amp; the value it decays (or is held) towards
+	 */
+	private double[] alphas;
+	private double[] alphaTargets;
+	private double maxAlpha;
+	/**
+	 * ordinal of the dragged node - -1 if no node is dragged
+	 */
+	private int draggedNode = -1;
+	/**
+	 * breadth first search from the dragged node
+	 */
+	private int[] reheatQueue;
+	private int[] reheatHops;
+
+	/**
+	 * @param builder
+	 *            contains the settings of the layout
+	 * @param pool
+	 *            pool the forces are calculated on, it's owned by the caller - null for a sequential engine, e.g. if
+	 *            the engine itself runs on a pool
+	 */
+	FRLayoutEngine(GLFruchtermanReingoldLayoutBuilder builder, ForkJoinPool pool) {
+		this(builder, pool, builder.randomSeed);
+	}
+
+	/**
+	 * @param builder
+	 *            contains the settings of the layout
+	 * @param pool
+	 *            pool the forces are calculated on - null for a sequential engine
+	 * @param randomSeed
+	 *            used instead of the builder's seed, if a seed is set - e.g. for independent runs of the same graph
+	 */
+	FRLayoutEngine(GLFruchtermanReingoldLayoutBuilder builder, ForkJoinPool pool, long randomSeed) {
+		this.maxIterations = builder.maxIterations;
+		this.incrementalIterations = builder.incrementalIterations;
+		this.convergenceTolerance = builder.convergenceTolerance;
+		this.convergenceIterations = builder.convergenceIterations;
+
+		/**
+		 * Temperature & cooldown are set to -1.0 by default, so if these are not -1.0, the user set them by the
+		 * LayoutBuilder
+		 */
+		this.isTemperatureAndCooldownSetByUser = builder.temperature >= 0.0;
+		this.userTemperature = builder.temperature;
+		this.userCooldown = builder.cooldown;
+
+		this.isRepulsionMultiplierSetToDistance = builder.repulsionMultiplier < 0.0;
+		this.repulsionMultiplier = builder.repulsionMultiplier;
+		this.userAttractionMultiplier = builder.attractionMultiplier;
+
+		this.anchorWeight = builder.anchorWeight;
+		this.coolingSchedule = builder.coolingSchedule;
+
+		this.barnesHutTheta = builder.barnesHutTheta;
+		setRepulsionMode(builder.repulsionMode);
+
+		this.pool = pool;
+		this.parallelism = (pool != null) ? pool.getParallelism() : 1;
+
+		this.isRandomSeedSet = builder.isRandomSeedSet;
+		this.randomSeed = randomSeed;
+	}
+
+	/**
+	 * @param repulsionMode
+	 *            how the repulsive forces are calculated from the next run on
+	 */
+	void setRepulsionMode(ERepulsionMode repulsionMode) {
+		this.repulsionMode = repulsionMode;
+		if (repulsionMode == ERepulsionMode.BARNES_HUT && quadTree == null)
+			quadTree = new BarnesHutQuadTree(barnesHutTheta);
+		else if (repulsionMode == ERepulsionMode.GRID && grid == null)
+			grid = new RepulsionGrid();
+	}
+
+	/**
+	 * starts a new run on the given state
+	 *
+	 * @param state
+	 *            positions & edges of the graph - the positions are used as start positions
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 */
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		this.state = state;
+		this.width = width;
+		this.height = height;
+		this.iteration = 0;
+		this.runIterations = maxIterations;
+		this.energy = Double.NaN;
+		this.maxDisplacement = Double.NaN;
+		this.stableIterationCount = 0;
+		this.progressIterationCount = 0;
+		this.isConverged = false;
+		this.random = isRandomSeedSet ? new Random(randomSeed) : new Random();
+		this.isSimulation = false;
+		this.draggedNode = -1;
+
+		if (isTemperatureAndCooldownSetByUser) {
+			temperature = userTemperature;
+			cooldown = userCooldown;
+		} else {
+			temperature = width / 10.0;
+			cooldown = temperature / maxIterations;
+		}
+
+		double area = width * height;
+		/**
+		 * nodes of coarsened levels represent several nodes -> the edge length is calculated for the original nodes
+		 */
+		globalEdgeLength = Math.sqrt(area / Math.max(state.getTotalMass(), 1.0));
+
+		attractionMultiplier = (userAttractionMultiplier < 0.0) ? globalEdgeLength : userAttractionMultiplier;
+
+		state.updateMovableNodes();
+		createTasks();
+	}
+
+	/**
+	 * starts a short run with a low temperature, which only moves the nodes, that are not fixed. Before, these nodes
+	 * are placed near their fixed neighbours.
+	 *
+	 * @param state
+	 *            positions & edges of the graph - the already laid out nodes have to be set fixed
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 */
+	public void startIncremental(FRLayoutState state, double width, double height) {
+		/**
+		 * the new nodes are already placed near their final position -> they shouldn't move further than an edge
+		 * length
+		 */
+		startRefinement(state, width, height, incrementalIterations, -1.0);
+
+		placeMovableNodes(Arrays.copyOf(state.fixed, state.nodeCount));
+	}
+
+	/**
+	 * starts a short run with a low temperature like {@link #startIncremental(FRLayoutState, double, double)}, but
+	 * all nodes are moved: the nodes with a known position (e.g. from a {@link PositionMemory}) only settle, the other
+	 * ones are placed near their known neighbours before.
+	 *
+	 * @param state
+	 *            positions & edges of the graph - the known nodes have to be at their known position
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 * @param isKnown
+	 *            for every node, whether its position is known
+	 */
+	public void startWarm(FRLayoutState state, double width, double height, boolean[] isKnown) {
+		startRefinement(state, width, height, incrementalIterations, -1.0);
+
+		boolean[] isPlaced = Arrays.copyOf(isKnown, state.nodeCount);
+		for (int i = 0; i < state.nodeCount; i++)
+			isPlaced[i] |= state.fixed[i];
+		placeMovableNodes(isPlaced);
+	}
+
+	/**
+	 * starts a run, which only refines the current positions: less iterations & a lower temperature
+	 *
+	 * @param state
+	 *            positions & edges of the graph - the positions are used as start positions
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 * @param iterations
+	 *            number of iterations of the run
+	 * @param temperature
+	 *            start temperature, if it is negative the globalEdgeLength is used
+	 */
+	public void startRefinement(FRLayoutState state, double width, double height, int iterations, double temperature) {
+		start(state, width, height);
+
+		this.runIterations = iterations;
+		this.temperature = (temperature < 0.0) ? globalEdgeLength : temperature;
+		this.cooldown = this.temperature / Math.max(runIterations, 1);
+	}
+
+	/**
+	 * starts a run with a tenth of the iterations, which starts with the globalEdgeLength as temperature
+	 */
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		startRefinement(state, width, height, Math.max(maxIterations / REFINEMENT_ITERATION_DIVISOR, 1), -1.0);
+	}
+
+	/**
+	 * starts the live simulation on a laid out state - it doesn't move any node, until one is dragged
+	 *
+	 * @param state
+	 *            positions &amp; edges of the graph, which are kept
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 */
+	public void startSimulation(FRLayoutState state, double width, double height) {
+		start(state, width, height);
+
+		isSimulation = true;
+		alphas = new double[state.nodeCount];
+		alphaTargets = new double[state.nodeCount];
+		reheatQueue = new int[state.nodeCount];
+		reheatHops = new int[state.nodeCount];
+		maxAlpha = 0.0;
+		state.buildAdjacency();
+		updateSimulatedNodes();
+	}
+
+	/**
+	 * fixes the node at its current position &amp; reheats the nodes up to {@link #DRAG_REHEAT_HOPS} edges away, until
+	 * {@link #endDrag()} is called
+	 *
+	 * @param node
+	 *            ordinal of the dragged node
+	 */
+	public void startDrag(int node) {
+		draggedNode = node;
+
+		Arrays.fill(reheatHops, -1);
+		reheatHops[node] = 0;
+		reheatQueue[0] = node;
+		int queueEnd = 1;
+		for (int q = 0; q < queueEnd; q++) {
+			int u = reheatQueue[q];
+			if (reheatHops[u] >= DRAG_REHEAT_HOPS)
+				continue;
+
+			for (int a = state.adjacencyOffsets[u]; a < state.adjacencyOffsets[u + 1]; a++) {
+				int v = state.adjacentNodes[a];
+				if (reheatHops[v] < 0) {
+					reheatHops[v] = reheatHops[u] + 1;
+					reheatQueue[queueEnd++] = v;
+				}
+			}
+		}
+
+		for (int q = 0; q < queueEnd; q++) {
+			int i = reheatQueue[q];
+			double alpha = DRAG_ALPHA * (1.0 - reheatHops[i] / (DRAG_REHEAT_HOPS + 1.0));
+			alphaTargets[i] = Math.max(alphaTargets[i], alpha);
+			alphas[i] = Math.max(alphas[i], alpha);
+			maxAlpha = Math.max(maxAlpha, alphas[i]);
+		}
+		updateSimulatedNodes();
+	}
+
+	/**
+	 * moves the dragged node to the given position - inside the area
+	 */
+	public void moveDraggedNode(double x, double y) {
+		if (draggedNode < 0)
+			return;
+
+		state.xPositions[draggedNode] = Math.min(Math.max(x, 0.0), width);
+		state.yPositions[draggedNode] = Math.min(Math.max(y, 0.0), height);
+	}
+
+	/**
+	 * releases the dragged node - the reheated nodes cool down in the next ticks
+	 */
+	public void endDrag() {
+		if (draggedNode < 0)
+			return;
+
+		draggedNode = -1;
+		Arrays.fill(alphaTargets, 0.0);
+		updateSimulatedNodes();
+	}
+
+	/**
+	 * @return true if the current run is a live simulation
+	 */
+	public boolean isSimulation() {
+		return isSimulation;
+	}
+
+	/**
+	 * @return ordinal of the dragged node - -1 if no node is dragged
+	 */
+	public int getDraggedNode() {
+		return draggedNode;
+	}
+
+	/**
+	 * only the hot nodes are moved, the others (&amp; the pinned &amp; dragged ones) are fixed - so the forces are
+	 * only calculated around the dragged node
+	 */
+	private void updateSimulatedNodes() {
+		for (int i = 0; i < state.nodeCount; i++) {
+			boolean isCold = Math.max(alphas[i], alphaTargets[i]) < SIMULATION_MIN_ALPHA;
+			state.fixed[i] = state.isPinned(i) || i == draggedNode || isCold;
+		}
+		state.updateMovableNodes();
+		createTasks();
+	}
+
+	/**
+	 * lets the alphas of the moved nodes decay towards their targets - when the simulation is finished, only the
+	 * pinned nodes stay fixed
+	 */
+	private void coolDownAlphas() {
+		double maxAlpha = 0.0;
+		for (int m = 0; m < state.movableNodeCount; m++) {
+			int i = state.movableNodes[m];
+			alphas[i] += (alphaTargets[i] - alphas[i]) * SIMULATION_ALPHA_DECAY;
+			if (alphas[i] > maxAlpha)
+				maxAlpha = alphas[i];
+		}
+		this.maxAlpha = maxAlpha;
+
+		if (isFinished()) {
+			for (int i = 0; i < state.nodeCount; i++)
+				state.fixed[i] = state.isPinned(i);
+			state.updateMovableNodes();
+		}
+	}
+
+	/**
+	 * executes all remaining iterations of the current run
+	 */
+	@Override
+	public void run() {
+		while (iterate()) {
+			// nothing to do in between
+		}
+	}
+
+	/**
+	 * executes one iteration
+	 *
+	 * @return true if further iterations are needed
+	 */
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		if (repulsionMode == ERepulsionMode.BARNES_HUT)
+			quadTree.build(state.xPositions, state.yPositions, state.masses, state.nodeCount);
+		else if (repulsionMode == ERepulsionMode.GRID)
+			grid.build(state.xPositions, state.yPositions, state.masses, state.nodeCount, GRID_CUTOFF_FACTOR
+					* globalEdgeLength);
+
+		/**
+		 * the repulsion overwrites the displacement of the last iteration, the attraction is written to the buffers &
+		 * added afterwards
+		 */
+		execute(forceTask);
+		execute(reductionTask);
+
+		if (isSimulation) {
+			calcNewVertexPositions();
+			coolDownAlphas();
+			iteration++;
+			return !isFinished();
+		}
+
+		double lastEnergy = energy;
+		calcNewVertexPositions();
+		checkConvergence(lastEnergy);
+
+		coolDownTemp(lastEnergy);
+
+		iteration++;
+
+		return !isFinished();
+	}
+
+	@Override
+	public boolean isFinished() {
+		if (state != null && isSimulation)
+			return draggedNode < 0 && maxAlpha < SIMULATION_MIN_ALPHA;
+		return state == null || isConverged || iteration >= runIterations || state.movableNodeCount == 0;
+	}
+
+	/**
+	 * @return number of iterations executed in the current run
+	 */
+	@Override
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * @return true if the current run was stopped before the maximal number of iterations, because it converged
+	 */
+	public boolean isConverged() {
+		return isConverged;
+	}
+
+	public double getEnergy() {
+		return energy;
+	}
+
+	public double getMaxDisplacement() {
+		return maxDisplacement;
+	}
+
+	public double getGlobalEdgeLength() {
+		return globalEdgeLength;
+	}
+
+	/**
+	 * splits the nodes & edges of the current state into ranges, which can be calculated independently
+	 */
+	private void createTasks() {
+		int nodeCount = state.nodeCount;
+		int movableNodeCount = state.movableNodeCount;
+		int edgeCount = state.activeEdgeCount;
+
+		int nodeRangeCount = Math.max(1, Math.min(movableNodeCount, parallelism * NODE_RANGES_PER_THREAD));
+		int attractionBlockCount = Math.max(1,
+				Math.min(MAX_ATTRACTION_BLOCK_COUNT, (edgeCount + MIN_ATTRACTION_BLOCK_SIZE - 1)
+						/ MIN_ATTRACTION_BLOCK_SIZE));
+
+		xAttractionBuffers = new double[attractionBlockCount][nodeCount];
+		yAttractionBuffers = new double[attractionBlockCount][nodeCount];
+
+		ARangeTask[] forceTasks = new ARangeTask[nodeRangeCount + attractionBlockCount];
+		ARangeTask[] reductionTasks = new ARangeTask[nodeRangeCount];
+
+		for (int i = 0; i < nodeRangeCount; i++) {
+			int from = (int) ((long) movableNodeCount * i / nodeRangeCount);
+			int to = (int) ((long) movableNodeCount * (i + 1) / nodeRangeCount);
+
+			forceTasks[i] = new RepulsionTask(from, to);
+			reductionTasks[i] = new ReductionRangeTask(from, to);
+		}
+		for (int b = 0; b < attractionBlockCount; b++) {
+			int from = (int) ((long) edgeCount * b / attractionBlockCount);
+			int to = (int) ((long) edgeCount * (b + 1) / attractionBlockCount);
+
+			forceTasks[nodeRangeCount + b] = new AttractionTask(from, to, b);
+		}
+
+		forceTask = new ForceTask(forceTasks);
+		reductionTask = new ReductionTask(reductionTasks);
+	}
+
+	/**
+	 * runs all sub tasks either on the pool or one after the other in the calling thread
+	 */
+	private void execute(AInvokeAllTask task) {
+		if (pool == null) {
+			for (ARangeTask subTask : task.subTasks)
+				subTask.computeRange();
+		} else {
+			task.reinitialize();
+			pool.invoke(task);
+		}
+	}
+
+	/**
+	 * places every node, which isn't placed yet but connected to a placed node, at the center of its already placed
+	 * neighbours - in breadth first order, so chains of new nodes grow out of the placed nodes
+	 *
+	 * @param isPlaced
+	 *            for every node, whether it is already placed (e.g. fixed) - changed by this method
+	 */
+	private void placeMovableNodes(boolean[] isPlaced) {
+		state.buildAdjacency();
+
+		int nodeCount = state.nodeCount;
+		int[] queue = new int[nodeCount];
+		int queueStart = 0;
+		int queueEnd = 0;
+
+		for (int i = 0; i < nodeCount; i++) {
+			if (isPlaced[i])
+				queue[queueEnd++] = i;
+		}
+
+		while (queueStart < queueEnd) {
+			int placedNode = queue[queueStart++];
+
+			for (int a = state.adjacencyOffsets[placedNode]; a < state.adjacencyOffsets[placedNode + 1]; a++) {
+				int node = state.adjacentNodes[a];
+				if (isPlaced[node])
+					continue;
+
+				double xSum = 0.0;
+				double ySum = 0.0;
+				int placedNeighbourCount = 0;
+				for (int b = state.adjacencyOffsets[node]; b < state.adjacencyOffsets[node + 1]; b++) {
+					int neighbour = state.adjacentNodes[b];
+					if (isPlaced[neighbour]) {
+						xSum += state.xPositions[neighbour];
+						ySum += state.yPositions[neighbour];
+						placedNeighbourCount++;
+					}
+				}
+
+				/**
+				 * a bit of random offset, otherwise nodes with the same neighbours would be placed at the same position
+				 */
+				double angle = random.nextDouble() * 2.0 * Math.PI;
+				double offset = globalEdgeLength / 2.0;
+				state.xPositions[node] = xSum / placedNeighbourCount + Math.cos(angle) * offset;
+				state.yPositions[node] = ySum / placedNeighbourCount + Math.sin(angle) * offset;
+
+				isPlaced[node] = true;
+				queue[queueEnd++] = node;
+			}
+		}
+	}
+
+	/**
+	 * calculate the repulsive forces between the nodes of the given range and all other nodes, the displacement of the
+	 * range's nodes is set accordingly
+	 */
+	private void calcRepulsiveForces(int from, int to) {
+		final int nodeCount = state.nodeCount;
+		final double[] xPositions = state.xPositions;
+		final double[] yPositions = state.yPositions;
+		final double[] masses = state.masses;
+		final double squaredEdgeLength = globalEdgeLength * globalEdgeLength;
+
+		for (int m = from; m < to; m++) {
+			int i = state.movableNodes[m];
+			double xPosition = xPositions[i];
+			double yPosition = yPositions[i];
+			double xDisplacement = 0.0;
+			double yDisplacement = 0.0;
+
+			for (int j = 0; j < nodeCount; j++) {
+				if (i == j)
+					continue;
+
+				double xDistance = xPosition - xPositions[j];
+				double yDistance = yPosition - yPositions[j];
+				double distance = Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+
+				if (distance > 0.0) {
+					double multiplier = isRepulsionMultiplierSetToDistance ? distance : repulsionMultiplier;
+					double repulsiveForce = masses[j] * squaredEdgeLength / (distance * multiplier);
+
+					xDisplacement += (xDistance / distance) * repulsiveForce;
+					yDisplacement += (yDistance / distance) * repulsiveForce;
+				}
+			}
+
+			state.xDisplacements[i] = xDisplacement;
+			state.yDisplacements[i] = yDisplacement;
+		}
+	}
+
+	/**
+	 * approximates the repulsive forces of the given range's nodes with the {@link BarnesHutQuadTree}, which was built
+	 * with the current node positions
+	 */
+	private void calcRepulsiveForcesBarnesHut(int from, int to, double[] repulsiveForce, int[] stack) {
+		final double squaredEdgeLength = globalEdgeLength * globalEdgeLength;
+
+		for (int m = from; m < to; m++) {
+			int i = state.movableNodes[m];
+			quadTree.calcRepulsiveForce(i, squaredEdgeLength, repulsionMultiplier, isRepulsionMultiplierSetToDistance,
+					repulsiveForce, stack);
+
+			state.xDisplacements[i] = repulsiveForce[0];
+			state.yDisplacements[i] = repulsiveForce[1];
+		}
+	}
+
+	/**
+	 * calculates the repulsive forces of the given range's nodes with the {@link RepulsionGrid}, which was built with
+	 * the current node positions - only nodes closer than the cutoff distance are taken into account
+	 */
+	private void calcRepulsiveForcesGrid(int from, int to, double[] repulsiveForce) {
+		final double squaredEdgeLength = globalEdgeLength * globalEdgeLength;
+		final double cutoffDistance = GRID_CUTOFF_FACTOR * globalEdgeLength;
+
+		for (int m = from; m < to; m++) {
+			int i = state.movableNodes[m];
+			grid.calcRepulsiveForce(i, squaredEdgeLength, cutoffDistance, repulsionMultiplier,
+					isRepulsionMultiplierSetToDistance, repulsiveForce);
+
+			state.xDisplacements[i] = repulsiveForce[0];
+			state.yDisplacements[i] = repulsiveForce[1];
+		}
+	}
+
+	/**
+	 * pulls the movable nodes from movableNodes[from] to movableNodes[to - 1] towards their anchors, like an edge of
+	 * weight anchorWeight to a fixed node at the anchor
+	 */
+	private void addAnchorForces(int from, int to) {
+		for (int m = from; m < to; m++) {
+			int i = state.movableNodes[m];
+			if (Double.isNaN(state.xAnchors[i]))
+				continue;
+
+			double xDistance = state.xPositions[i] - state.xAnchors[i];
+			double yDistance = state.yPositions[i] - state.yAnchors[i];
+			double distance = Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+
+			if (distance > 0.0) {
+				double anchorForce = anchorWeight * distance * distance / (globalEdgeLength * attractionMultiplier);
+				state.xDisplacements[i] -= xDistance / distance * anchorForce;
+				state.yDisplacements[i] -= yDistance / distance * anchorForce;
+			}
+		}
+	}
+
+	/**
+	 * pulls the source & target nodes of the active edges in the given range towards each other
+	 *
+	 * @param xDisplacements
+	 *            buffer for the x displacement of this edge range
+	 * @param yDisplacements
+	 *            buffer for the y displacement of this edge range
+	 */
+	private void calcAttractiveForces(int from, int to, double[] xDisplacements, double[] yDisplacements) {
+		final double[] xPositions = state.xPositions;
+		final double[] yPositions = state.yPositions;
+
+		/**
+		 * only the displacement of movable nodes is read afterwards
+		 */
+		for (int m = 0; m < state.movableNodeCount; m++) {
+			int i = state.movableNodes[m];
+			xDisplacements[i] = 0.0;
+			yDisplacements[i] = 0.0;
+		}
+
+		for (int a = from; a < to; a++) {
+			int e = state.activeEdges[a];
+			int source = state.edgeSources[e];
+			int target = state.edgeTargets[e];
+
+			double xDistance = xPositions[source] - xPositions[target];
+			double yDistance = yPositions[source] - yPositions[target];
+			double distance = Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+
+			if (distance > 0.0) {
+				double attractiveForce = state.edgeWeights[e] * distance * distance
+						/ (globalEdgeLength * attractionMultiplier);
+				double xDisplacement = xDistance / distance * attractiveForce;
+				double yDisplacement = yDistance / distance * attractiveForce;
+
+				xDisplacements[source] -= xDisplacement;
+				yDisplacements[source] -= yDisplacement;
+				xDisplacements[target] += xDisplacement;
+				yDisplacements[target] += yDisplacement;
+			}
+		}
+	}
+
+	/**
+	 * adds the attraction buffers to the displacement of the nodes in the given range - always in the same order
+	 */
+	private void addAttractiveForces(int from, int to) {
+		for (int b = 0; b < xAttractionBuffers.length; b++) {
+			double[] xBuffer = xAttractionBuffers[b];
+			double[] yBuffer = yAttractionBuffers[b];
+
+			for (int m = from; m < to; m++) {
+				int i = state.movableNodes[m];
+				state.xDisplacements[i] += xBuffer[i];
+				state.yDisplacements[i] += yBuffer[i];
+			}
+		}
+	}
+
+	/**
+	 * moves every movable node along its displacement - limited by the temperature (in the live simulation by the
+	 * node's alpha * globalEdgeLength) & the borders of the area
+	 */
+	private void calcNewVertexPositions() {
+		final double borderWidth = width / 50.0;
+		double energy = 0.0;
+		double maxDisplacement = 0.0;
+
+		for (int m = 0; m < state.movableNodeCount; m++) {
+			int i = state.movableNodes[m];
+			double xPosition = state.xPositions[i];
+			double yPosition = state.yPositions[i];
+			double xDisplacement = state.xDisplacements[i];
+			double yDisplacement = state.yDisplacements[i];
+			double displacementDistance = Math.sqrt(xDisplacement * xDisplacement + yDisplacement * yDisplacement);
+
+			double nodeTemperature = isSimulation ? alphas[i] * globalEdgeLength : temperature;
+			double maxDisplacementLimit = Math.min(displacementDistance, nodeTemperature);
+
+			if (maxDisplacementLimit > 0.0) {
+				xPosition += (xDisplacement / displacementDistance) * maxDisplacementLimit;
+				yPosition += (yDisplacement / displacementDistance) * maxDisplacementLimit;
+			}
+
+			double xCalculatedPosition = xPosition;
+			double yCalculatedPosition = yPosition;
+
+			if (xPosition < borderWidth) {
+				xPosition = borderWidth + random.nextDouble() * borderWidth * 2.0;
+			} else if (xPosition > (width - borderWidth)) {
+				xPosition = width - borderWidth - random.nextDouble() * borderWidth * 2.0;
+			}
+
+			if (yPosition < borderWidth) {
+				yPosition = borderWidth + random.nextDouble() * borderWidth * 2.0;
+			} else if (yPosition > (height - borderWidth)) {
+				yPosition = height - borderWidth - random.nextDouble() * borderWidth * 2.0;
+			}
+
+			/**
+			 * nodes, which are pushed against the border, are randomly placed back every iteration - they would never
+			 * settle, so they don't count for the convergence
+			 */
+			boolean isPlacedBackByBorder = xPosition != xCalculatedPosition || yPosition != yCalculatedPosition;
+			if (!isPlacedBackByBorder) {
+				energy += displacementDistance * displacementDistance;
+				if (maxDisplacementLimit > maxDisplacement)
+					maxDisplacement = maxDisplacementLimit;
+			}
+
+			state.xPositions[i] = xPosition;
+			state.yPositions[i] = yPosition;
+		}
+
+		this.energy = energy;
+		this.maxDisplacement = maxDisplacement;
+	}
+
+	/**
+	 * counts the consecutive iterations, in which the relative change of the energy or the maximal displacement stayed
+	 * below the tolerance
+	 */
+	private void checkConvergence(double lastEnergy) {
+		if (convergenceTolerance <= 0.0 || Double.isNaN(lastEnergy))
+			return;
+
+		double relativeEnergyChange = (lastEnergy > 0.0) ? Math.abs(energy - lastEnergy) / lastEnergy : 0.0;
+		double relativeDisplacement = maxDisplacement / globalEdgeLength;
+
+		if (relativeEnergyChange < convergenceTolerance || relativeDisplacement < convergenceTolerance)
+			stableIterationCount++;
+		else
+			stableIterationCount = 0;
+
+		if (stableIterationCount >= convergenceIterations)
+			isConverged = true;
+	}
+
+	/**
+	 * @param lastEnergy
+	 *            energy of the previous iteration, NaN in the first one
+	 */
+	private void coolDownTemp(double lastEnergy) {
+		if (coolingSchedule == ECoolingSchedule.LINEAR) {
+			temperature -= cooldown;
+			if (temperature < 0.0)
+				temperature = 0.0;
+			return;
+		}
+
+		if (iteration == 0)
+			maxTemperature = temperature;
+
+		if (Double.isNaN(lastEnergy) || energy < lastEnergy) {
+			progressIterationCount++;
+			if (progressIterationCount >= ADAPTIVE_PROGRESS_ITERATIONS) {
+				progressIterationCount = 0;
+				temperature = Math.min(temperature / ADAPTIVE_COOLING_FACTOR, maxTemperature);
+			}
+		} else {
+			progressIterationCount = 0;
+			temperature *= ADAPTIVE_COOLING_FACTOR;
+		}
+
+		/**
+		 * the nodes can hardly move anymore
+		 */
+		if (temperature < ADAPTIVE_MIN_TEMPERATURE * globalEdgeLength)
+			isConverged = true;
+	}
+
+	/**
+	 * part of an iteration, which can be calculated independently of the other parts
+	 */
+	private abstract static class ARangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		protected final int from;
+		protected final int to;
+
+		public ARangeTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected abstract void computeRange();
+
+		@Override
+		protected void compute() {
+			computeRange();
+		}
+	}
+
+	private final class RepulsionTask extends ARangeTask {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] repulsiveForce = new double[2];
+		private final int[] stack = BarnesHutQuadTree.createStack();
+
+		public RepulsionTask(int from, int to) {
+			super(from, to);
+		}
+
+		@Override
+		protected void computeRange() {
+			if (repulsionMode == ERepulsionMode.BARNES_HUT)
+				calcRepulsiveForcesBarnesHut(from, to, repulsiveForce, stack);
+			else if (repulsionMode == ERepulsionMode.GRID)
+				calcRepulsiveForcesGrid(from, to, repulsiveForce);
+			else
+				calcRepulsiveForces(from, to);
+		}
+	}
+
+	private final class AttractionTask extends ARangeTask {
+		private static final long serialVersionUID = 1L;
+
+		private final int block;
+
+		public AttractionTask(int from, int to, int block) {
+			super(from, to);
+			this.block = block;
+		}
+
+		@Override
+		protected void computeRange() {
+			calcAttractiveForces(from, to, xAttractionBuffers[block], yAttractionBuffers[block]);
+		}
+	}
+
+	private final class ReductionRangeTask extends ARangeTask {
+		private static final long serialVersionUID = 1L;
+
+		public ReductionRangeTask(int from, int to) {
+			super(from, to);
+		}
+
+		@Override
+		protected void computeRange() {
+			addAttractiveForces(from, to);
+			if (state.hasAnchors)
+				addAnchorForces(from, to);
+		}
+	}
+
+	/**
+	 * executes all of its sub tasks on the pool & waits for them
+	 */
+	private abstract static class AInvokeAllTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		protected final ARangeTask[] subTasks;
+
+		public AInvokeAllTask(ARangeTask[] subTasks) {
+			this.subTasks = subTasks;
+		}
+
+		@Override
+		protected void compute() {
+			for (ARangeTask subTask : subTasks)
+				subTask.reinitialize();
+			invokeAll(subTasks);
+		}
+	}
+
+	private static final class ForceTask extends AInvokeAllTask {
+		private static final long serialVersionUID = 1L;
+
+		public ForceTask(ARangeTask[] subTasks) {
+			super(subTasks);
+		}
+	}
+
+	private static final class ReductionTask extends AInvokeAllTask {
+		private static final long serialVersionUID = 1L;
+
+		public ReductionTask(ARangeTask[] subTasks) {
+			super(subTasks);
+		}
+	}
+
+}
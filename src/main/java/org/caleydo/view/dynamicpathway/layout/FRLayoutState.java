@@ -0,0 +1,445 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Flat copy of an {@link IFRLayoutGraph}, used by the {@link FRLayoutEngine}.
+ *
+ * Positions, sizes & displacements are stored in primitive arrays indexed by the node's ordinal, edges are stored as
+ * source/target ordinals. So the layout iterations neither have to call the {@link IFRLayoutNode} interface, nor hash
+ * nodes, nor create objects. The results are written back to the nodes once by {@link #writeBack()}.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public final class FRLayoutState {
+
+	final int nodeCount;
+	final IFRLayoutNode[] nodes;
+	/**
+	 * {@link IFRLayoutNode#getLayoutKey()} of the nodes - 0 for states without graph
+	 */
+	final long[] nodeKeys;
+
+	final double[] xPositions;
+	final double[] yPositions;
+	final double[] xDisplacements;
+	final double[] yDisplacements;
+	final float[] widths;
+	final float[] heights;
+
+	/**
+	 * number of original nodes a node represents - 1 except for the nodes of coarsened levels
+	 */
+	final double[] masses;
+
+	final int edgeCount;
+	final int[] edgeSources;
+	final int[] edgeTargets;
+	/**
+	 * number of original edges an edge represents - 1 except for the edges of coarsened levels
+	 */
+	final double[] edgeWeights;
+
+	/**
+	 * fixed nodes keep their position, but still repulse & attract the other nodes - pinned nodes are fixed from the
+	 * beginning
+	 */
+	final boolean[] fixed;
+	/**
+	 * ordinals of the nodes, which are not fixed - set by {@link #updateMovableNodes()}
+	 */
+	int[] movableNodes;
+	int movableNodeCount;
+	/**
+	 * ordinals of the edges with at least one movable node - the other edges don't change any position
+	 */
+	int[] activeEdges;
+	int activeEdgeCount;
+
+	/**
+	 * points the nodes are pulled towards - NaN for nodes without anchor
+	 */
+	final double[] xAnchors;
+	final double[] yAnchors;
+	boolean hasAnchors = false;
+
+	/**
+	 * neighbours of node i are adjacentNodes[adjacencyOffsets[i]] to adjacentNodes[adjacencyOffsets[i + 1] - 1] - set
+	 * by {@link #buildAdjacency()}
+	 */
+	int[] adjacencyOffsets;
+	int[] adjacentNodes;
+
+	/**
+	 * connected component of each node, numbered from 0 - set by {@link #findComponents()}
+	 */
+	int[] nodeComponents;
+	int componentCount;
+
+	private final Map<IFRLayoutNode, Integer> nodeIndexMap;
+
+	private FRLayoutState(int nodeCount, IFRLayoutNode[] nodes, int[] edgeSources, int[] edgeTargets, int edgeCount,
+			Map<IFRLayoutNode, Integer> nodeIndexMap) {
+		this.nodeCount = nodeCount;
+		this.nodes = nodes;
+		this.nodeKeys = new long[nodeCount];
+		this.xPositions = new double[nodeCount];
+		this.yPositions = new double[nodeCount];
+		this.xDisplacements = new double[nodeCount];
+		this.yDisplacements = new double[nodeCount];
+		this.widths = new float[nodeCount];
+		this.heights = new float[nodeCount];
+		this.masses = new double[nodeCount];
+		this.edgeCount = edgeCount;
+		this.edgeSources = edgeSources;
+		this.edgeTargets = edgeTargets;
+		this.edgeWeights = new double[edgeCount];
+		this.fixed = new boolean[nodeCount];
+		this.movableNodes = new int[nodeCount];
+		this.activeEdges = new int[edgeCount];
+		this.xAnchors = new double[nodeCount];
+		this.yAnchors = new double[nodeCount];
+		this.nodeIndexMap = nodeIndexMap;
+
+		Arrays.fill(masses, 1.0);
+		Arrays.fill(edgeWeights, 1.0);
+		Arrays.fill(xAnchors, Double.NaN);
+		Arrays.fill(yAnchors, Double.NaN);
+
+		if (nodes == null)
+			return;
+
+		for (int i = 0; i < nodeCount; i++) {
+			IFRLayoutNode node = nodes[i];
+			nodeKeys[i] = node.getLayoutKey();
+			xPositions[i] = node.getCenterX();
+			yPositions[i] = node.getCenterY();
+			widths[i] = (float) node.getWidth();
+			heights[i] = (float) node.getHeight();
+			fixed[i] = node.isPinned();
+
+			xAnchors[i] = node.getAnchorX();
+			yAnchors[i] = node.getAnchorY();
+			if (Double.isNaN(xAnchors[i]) || Double.isNaN(yAnchors[i])) {
+				xAnchors[i] = Double.NaN;
+				yAnchors[i] = Double.NaN;
+			} else {
+				hasAnchors = true;
+			}
+		}
+	}
+
+	/**
+	 * copies the current node positions, sizes & the edges of the graph
+	 *
+	 * @param graph
+	 *            the graph to copy
+	 * @return the created state
+	 */
+	public static FRLayoutState createFromGraph(IFRLayoutGraph graph) {
+		Set<IFRLayoutNode> nodeSet = graph.getNodeSet();
+		Set<IFRLayoutEdge> edgeSet = graph.getEdgeSet();
+
+		IFRLayoutNode[] nodes = nodeSet.toArray(new IFRLayoutNode[nodeSet.size()]);
+		Map<IFRLayoutNode, Integer> nodeIndexMap = new IdentityHashMap<IFRLayoutNode, Integer>(nodes.length);
+		for (int i = 0; i < nodes.length; i++)
+			nodeIndexMap.put(nodes[i], i);
+
+		int[] edgeSources = new int[edgeSet.size()];
+		int[] edgeTargets = new int[edgeSet.size()];
+		int edgeCount = 0;
+		for (IFRLayoutEdge edge : edgeSet) {
+			Integer sourceIndex = nodeIndexMap.get(edge.getSource());
+			Integer targetIndex = nodeIndexMap.get(edge.getTarget());
+
+			if (sourceIndex == null || targetIndex == null) {
+				System.err.println("Source (" + edge.getSource() + ") or Target Node (" + edge.getTarget()
+						+ ") of edge (" + edge + ") not in node set");
+				continue;
+			}
+
+			edgeSources[edgeCount] = sourceIndex;
+			edgeTargets[edgeCount] = targetIndex;
+			edgeCount++;
+		}
+
+		return new FRLayoutState(nodes.length, nodes, edgeSources, edgeTargets, edgeCount, nodeIndexMap);
+	}
+
+	/**
+	 * creates a state, which isn't backed by nodes of a graph (e.g. a coarsened level of a graph) - positions, masses
+	 * & edge weights have to be set by the caller
+	 *
+	 * @param nodeCount
+	 *            number of nodes
+	 * @param edgeSources
+	 *            source ordinal of each edge
+	 * @param edgeTargets
+	 *            target ordinal of each edge
+	 * @param edgeCount
+	 *            how many entries of the edge arrays are used
+	 * @return the created state
+	 */
+	static FRLayoutState createWithoutGraph(int nodeCount, int[] edgeSources, int[] edgeTargets, int edgeCount) {
+		return new FRLayoutState(nodeCount, null, edgeSources, edgeTargets, edgeCount, null);
+	}
+
+	/**
+	 * @return a state with a copy of the positions, sizes, masses, fixed flags &amp; anchors, which isn't backed by the
+	 *         nodes - the edges are shared, e.g. for another run on the same graph
+	 */
+	FRLayoutState copyWithoutGraph() {
+		FRLayoutState copy = createWithoutGraph(nodeCount, edgeSources, edgeTargets, edgeCount);
+		System.arraycopy(nodeKeys, 0, copy.nodeKeys, 0, nodeCount);
+		System.arraycopy(widths, 0, copy.widths, 0, nodeCount);
+		System.arraycopy(heights, 0, copy.heights, 0, nodeCount);
+		System.arraycopy(masses, 0, copy.masses, 0, nodeCount);
+		System.arraycopy(fixed, 0, copy.fixed, 0, nodeCount);
+		System.arraycopy(xAnchors, 0, copy.xAnchors, 0, nodeCount);
+		System.arraycopy(yAnchors, 0, copy.yAnchors, 0, nodeCount);
+		System.arraycopy(edgeWeights, 0, copy.edgeWeights, 0, edgeCount);
+		copy.hasAnchors = hasAnchors;
+		copy.copyPositionsFrom(this);
+		return copy;
+	}
+
+	/**
+	 * sets the positions to the ones of the given state of the same graph
+	 */
+	void copyPositionsFrom(FRLayoutState other) {
+		System.arraycopy(other.xPositions, 0, xPositions, 0, nodeCount);
+		System.arraycopy(other.yPositions, 0, yPositions, 0, nodeCount);
+	}
+
+	/**
+	 * @param node
+	 *            node of the graph this state was created from
+	 * @return the node's ordinal, or -1 if the node isn't part of this state
+	 */
+	public int indexOf(IFRLayoutNode node) {
+		if (nodeIndexMap == null)
+			return -1;
+
+		Integer index = nodeIndexMap.get(node);
+		return (index == null) ? -1 : index.intValue();
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	public double getCenterX(int node) {
+		return xPositions[node];
+	}
+
+	public double getCenterY(int node) {
+		return yPositions[node];
+	}
+
+	public boolean isFixed(int node) {
+		return fixed[node];
+	}
+
+	/**
+	 * @return true if the node is pinned ({@link IFRLayoutNode#isPinned()}) - false for states without nodes
+	 */
+	boolean isPinned(int node) {
+		return nodes != null && nodes[node].isPinned();
+	}
+
+	/**
+	 * @param node
+	 *            ordinal of the node
+	 * @param isFixed
+	 *            if true, the layout doesn't move the node
+	 */
+	public void setFixed(int node, boolean isFixed) {
+		fixed[node] = isFixed;
+	}
+
+	/**
+	 * @return sum of the masses of all nodes, i.e. the number of original nodes
+	 */
+	public double getTotalMass() {
+		double totalMass = 0.0;
+		for (int i = 0; i < nodeCount; i++)
+			totalMass += masses[i];
+		return totalMass;
+	}
+
+	public int getMovableNodeCount() {
+		return movableNodeCount;
+	}
+
+	/**
+	 * collects the movable nodes & the edges, which affect them - has to be called after the fixed flags changed
+	 */
+	void updateMovableNodes() {
+		movableNodeCount = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			if (!fixed[i])
+				movableNodes[movableNodeCount++] = i;
+		}
+
+		activeEdgeCount = 0;
+		for (int e = 0; e < edgeCount; e++) {
+			if (!fixed[edgeSources[e]] || !fixed[edgeTargets[e]])
+				activeEdges[activeEdgeCount++] = e;
+		}
+	}
+
+	/**
+	 * @return ordinals of the nodes, sorted by their layout keys
+	 */
+	int[] getNodesSortedByKey() {
+		Integer[] sortedNodes = new Integer[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			sortedNodes[i] = i;
+
+		Arrays.sort(sortedNodes, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer node1, Integer node2) {
+				long key1 = nodeKeys[node1];
+				long key2 = nodeKeys[node2];
+				return (key1 < key2) ? -1 : ((key1 == key2) ? 0 : 1);
+			}
+		});
+
+		int[] result = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			result[i] = sortedNodes[i];
+		return result;
+	}
+
+	/**
+	 * @return the layout keys of the given nodes, in the same order
+	 */
+	long[] getNodeKeys(int[] nodeOrdinals) {
+		long[] keys = new long[nodeOrdinals.length];
+		for (int i = 0; i < nodeOrdinals.length; i++)
+			keys[i] = nodeKeys[nodeOrdinals[i]];
+		return keys;
+	}
+
+	/**
+	 * calculates a hash of the graph's structure: the layout keys of the nodes & the edges between them, independent
+	 * of their order
+	 *
+	 * @return the hash
+	 */
+	public long computeStructureHash() {
+		long[] sortedNodeKeys = Arrays.copyOf(nodeKeys, nodeCount);
+		Arrays.sort(sortedNodeKeys);
+
+		long[] sortedEdgeKeys = new long[edgeCount];
+		for (int e = 0; e < edgeCount; e++)
+			sortedEdgeKeys[e] = mixHash(mixHash(0L, nodeKeys[edgeSources[e]]), nodeKeys[edgeTargets[e]]);
+		Arrays.sort(sortedEdgeKeys);
+
+		long hash = mixHash(nodeCount, edgeCount);
+		for (long key : sortedNodeKeys)
+			hash = mixHash(hash, key);
+		for (long key : sortedEdgeKeys)
+			hash = mixHash(hash, key);
+		return hash;
+	}
+
+	/**
+	 * combines a hash with a value, the bits of the value are spread (finalizer of SplitMix64), so similar values
+	 * don't result in similar hashes
+	 */
+	static long mixHash(long hash, long value) {
+		long z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return hash * 31L + z;
+	}
+
+	/**
+	 * numbers the connected components by a breadth first search, if they weren't numbered yet
+	 */
+	void findComponents() {
+		if (nodeComponents != null)
+			return;
+
+		buildAdjacency();
+		nodeComponents = new int[nodeCount];
+		Arrays.fill(nodeComponents, -1);
+		componentCount = 0;
+		int[] queue = new int[nodeCount];
+
+		for (int root = 0; root < nodeCount; root++) {
+			if (nodeComponents[root] >= 0)
+				continue;
+
+			nodeComponents[root] = componentCount;
+			queue[0] = root;
+			int queueEnd = 1;
+			for (int q = 0; q < queueEnd; q++) {
+				int u = queue[q];
+				for (int a = adjacencyOffsets[u]; a < adjacencyOffsets[u + 1]; a++) {
+					int v = adjacentNodes[a];
+					if (nodeComponents[v] < 0) {
+						nodeComponents[v] = componentCount;
+						queue[queueEnd++] = v;
+					}
+				}
+			}
+			componentCount++;
+		}
+	}
+
+	/**
+	 * @return number of connected components of the graph
+	 */
+	public int getComponentCount() {
+		findComponents();
+		return componentCount;
+	}
+
+	/**
+	 * creates the adjacency lists of the nodes, if they weren't created yet
+	 */
+	void buildAdjacency() {
+		if (adjacencyOffsets != null)
+			return;
+
+		adjacencyOffsets = new int[nodeCount + 1];
+		adjacentNodes = new int[2 * edgeCount];
+
+		for (int e = 0; e < edgeCount; e++) {
+			adjacencyOffsets[edgeSources[e] + 1]++;
+			adjacencyOffsets[edgeTargets[e] + 1]++;
+		}
+		for (int i = 0; i < nodeCount; i++)
+			adjacencyOffsets[i + 1] += adjacencyOffsets[i];
+
+		int[] nextSlot = Arrays.copyOf(adjacencyOffsets, nodeCount);
+		for (int e = 0; e < edgeCount; e++) {
+			adjacentNodes[nextSlot[edgeSources[e]]++] = edgeTargets[e];
+			adjacentNodes[nextSlot[edgeTargets[e]]++] = edgeSources[e];
+		}
+	}
+
+	/**
+	 * sets the calculated centers of all nodes
+	 */
+	public void writeBack() {
+		if (nodes == null)
+			return;
+
+		for (int i = 0; i < nodeCount; i++)
+			nodes[i].setCenter(xPositions[i], yPositions[i]);
+	}
+
+}
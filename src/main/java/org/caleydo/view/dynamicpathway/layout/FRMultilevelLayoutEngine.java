@@ -0,0 +1,372 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Multilevel variant of the Fruchterman &amp; Reingold layout for big graphs.
+ *
+ * The graph is coarsened level by level: neighbouring nodes are matched &amp; leaves are collapsed into their
+ * neighbour, until only a few nodes are left. The coarsest level is laid out with all iterations of the
+ * {@link FRLayoutEngine}, then its positions are projected onto the next finer level, which is only refined by a few
+ * iterations with a low temperature - down to the original graph. The nodes of the coarse levels repulse with their
+ * mass (i.e. the number of original nodes they represent), the edges attract with their weight. A cluster containing
+ * a fixed node is fixed at its position.
+ *
+ * Like the {@link FRLayoutEngine}, a run can be executed at once or iteration by iteration.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class FRMultilevelLayoutEngine implements ILayoutEngine {
+
+	/**
+	 * the coarsening stops, as soon as a level has at most this many nodes
+	 */
+	private static final int COARSEST_NODE_COUNT = 50;
+
+	/**
+	 * the coarsening stops, if a level doesn't reduce the node count below this ratio
+	 */
+	private static final double MAX_COARSENING_RATIO = 0.9;
+
+	private static final int REFINEMENT_ITERATIONS = 50;
+
+	/**
+	 * lays out the single levels
+	 */
+	private final FRLayoutEngine engine;
+
+	private final boolean isRandomSeedSet;
+	private final long randomSeed;
+
+	// state of the current run
+
+	/**
+	 * levels.get(0) is the original graph, the last one the coarsest
+	 */
+	private List<FRLayoutState> levels;
+	/**
+	 * parents.get(l)[i] is the node of level l+1, which contains node i of level l
+	 */
+	private List<int[]> parents;
+	private int currentLevel;
+	private double width;
+	private double height;
+	private int iteration;
+	/**
+	 * used for the coarsening order & for spreading the nodes of a cluster, when they are projected
+	 */
+	private Random random;
+
+	/**
+	 * @param builder
+	 *            contains the settings of the layout
+	 * @param engine
+	 *            runs the iterations on the single levels
+	 */
+	public FRMultilevelLayoutEngine(GLFruchtermanReingoldLayoutBuilder builder, FRLayoutEngine engine) {
+		this(builder, engine, builder.randomSeed);
+	}
+
+	/**
+	 * @param builder
+	 *            contains the settings of the layout
+	 * @param engine
+	 *            runs the iterations on the single levels
+	 * @param randomSeed
+	 *            used instead of the builder's seed, if a seed is set - e.g. for independent runs of the same graph
+	 */
+	FRMultilevelLayoutEngine(GLFruchtermanReingoldLayoutBuilder builder, FRLayoutEngine engine, long randomSeed) {
+		this.engine = engine;
+		this.isRandomSeedSet = builder.isRandomSeedSet;
+		this.randomSeed = randomSeed;
+	}
+
+	/**
+	 * coarsens the graph & starts the layout of the coarsest level
+	 *
+	 * @param state
+	 *            positions & edges of the graph
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 */
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		this.width = width;
+		this.height = height;
+		this.iteration = 0;
+		this.random = isRandomSeedSet ? new Random(randomSeed) : new Random();
+
+		levels = new ArrayList<FRLayoutState>();
+		parents = new ArrayList<int[]>();
+		levels.add(state);
+
+		FRLayoutState level = state;
+		while (level.nodeCount > COARSEST_NODE_COUNT) {
+			int[] parent = new int[level.nodeCount];
+			FRLayoutState coarseLevel = coarsen(level, parent);
+			if (coarseLevel.nodeCount > MAX_COARSENING_RATIO * level.nodeCount)
+				break;
+
+			levels.add(coarseLevel);
+			parents.add(parent);
+			level = coarseLevel;
+		}
+
+		currentLevel = levels.size() - 1;
+		engine.start(levels.get(currentLevel), width, height);
+	}
+
+	/**
+	 * the positions are already good, so coarsening would only lose them -> only the original graph is refined
+	 */
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		this.width = width;
+		this.height = height;
+		this.iteration = 0;
+		this.random = isRandomSeedSet ? new Random(randomSeed) : new Random();
+
+		levels = new ArrayList<FRLayoutState>();
+		parents = new ArrayList<int[]>();
+		levels.add(state);
+
+		currentLevel = 0;
+		engine.startRefinement(state, width, height);
+	}
+
+	/**
+	 * executes all remaining iterations of all levels
+	 */
+	@Override
+	public void run() {
+		while (iterate()) {
+			// nothing to do in between
+		}
+	}
+
+	/**
+	 * executes one iteration of the current level, if it is finished the next finer level is started
+	 *
+	 * @return true if further iterations are needed
+	 */
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		if (engine.iterate() == false && currentLevel > 0) {
+			currentLevel--;
+			projectPositions(currentLevel);
+			engine.startRefinement(levels.get(currentLevel), width, height, REFINEMENT_ITERATIONS, -1.0);
+		}
+
+		iteration++;
+
+		return !isFinished();
+	}
+
+	@Override
+	public boolean isFinished() {
+		return levels == null || (currentLevel == 0 && engine.isFinished());
+	}
+
+	/**
+	 * @return number of iterations executed on all levels of the current run
+	 */
+	@Override
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * @return number of levels of the current run, including the original graph
+	 */
+	public int getLevelCount() {
+		return (levels == null) ? 0 : levels.size();
+	}
+
+	/**
+	 * combines matched nodes & leaves with their neighbour
+	 *
+	 * @param fine
+	 *            the level to coarsen
+	 * @param parent
+	 *            is filled with the node of the coarse level, which contains the fine node
+	 * @return the coarse level
+	 */
+	private FRLayoutState coarsen(FRLayoutState fine, int[] parent) {
+		fine.buildAdjacency();
+
+		int nodeCount = fine.nodeCount;
+		int[] order = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			order[i] = i;
+			parent[i] = -1;
+		}
+		for (int i = nodeCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		/**
+		 * match every node with its lightest unmatched neighbour, so the clusters stay balanced
+		 */
+		int coarseCount = 0;
+		for (int u : order) {
+			if (parent[u] >= 0)
+				continue;
+
+			int match = -1;
+			for (int a = fine.adjacencyOffsets[u]; a < fine.adjacencyOffsets[u + 1]; a++) {
+				int v = fine.adjacentNodes[a];
+				if (v != u && parent[v] < 0 && (match < 0 || fine.masses[v] < fine.masses[match]))
+					match = v;
+			}
+
+			if (match >= 0) {
+				parent[u] = coarseCount;
+				parent[match] = coarseCount;
+				coarseCount++;
+			}
+		}
+
+		/**
+		 * unmatched leaves are collapsed into their neighbour - otherwise e.g. star like structures would hardly shrink
+		 */
+		for (int u : order) {
+			if (parent[u] >= 0)
+				continue;
+
+			int neighbour = getSingleNeighbour(fine, u);
+			if (neighbour >= 0 && parent[neighbour] >= 0)
+				parent[u] = parent[neighbour];
+			else
+				parent[u] = coarseCount++;
+		}
+
+		return createCoarseLevel(fine, parent, coarseCount);
+	}
+
+	/**
+	 * @return the only neighbour of the node, or -1 if it has none or several
+	 */
+	private int getSingleNeighbour(FRLayoutState state, int node) {
+		int neighbour = -1;
+		for (int a = state.adjacencyOffsets[node]; a < state.adjacencyOffsets[node + 1]; a++) {
+			int v = state.adjacentNodes[a];
+			if (v == node || v == neighbour)
+				continue;
+			if (neighbour >= 0)
+				return -1;
+			neighbour = v;
+		}
+		return neighbour;
+	}
+
+	/**
+	 * creates the coarse level: masses are summed up, positions are averaged & parallel edges are combined into one
+	 * weighted edge
+	 */
+	private FRLayoutState createCoarseLevel(FRLayoutState fine, int[] parent, int coarseCount) {
+		Map<Long, Integer> edgeIndexMap = new HashMap<Long, Integer>();
+		int[] edgeSources = new int[fine.edgeCount];
+		int[] edgeTargets = new int[fine.edgeCount];
+		double[] edgeWeights = new double[fine.edgeCount];
+		int edgeCount = 0;
+
+		for (int e = 0; e < fine.edgeCount; e++) {
+			int source = parent[fine.edgeSources[e]];
+			int target = parent[fine.edgeTargets[e]];
+			if (source == target)
+				continue;
+
+			long key = (long) Math.min(source, target) * coarseCount + Math.max(source, target);
+			Integer index = edgeIndexMap.get(key);
+			if (index == null) {
+				edgeIndexMap.put(key, edgeCount);
+				edgeSources[edgeCount] = source;
+				edgeTargets[edgeCount] = target;
+				edgeWeights[edgeCount] = fine.edgeWeights[e];
+				edgeCount++;
+			} else {
+				edgeWeights[index] += fine.edgeWeights[e];
+			}
+		}
+
+		FRLayoutState coarse = FRLayoutState.createWithoutGraph(coarseCount, edgeSources, edgeTargets, edgeCount);
+		System.arraycopy(edgeWeights, 0, coarse.edgeWeights, 0, edgeCount);
+
+		for (int i = 0; i < coarseCount; i++)
+			coarse.masses[i] = 0.0;
+
+		for (int i = 0; i < fine.nodeCount; i++) {
+			int p = parent[i];
+			double mass = fine.masses[i];
+			coarse.masses[p] += mass;
+			coarse.xPositions[p] += fine.xPositions[i] * mass;
+			coarse.yPositions[p] += fine.yPositions[i] * mass;
+		}
+
+		for (int i = 0; i < coarseCount; i++) {
+			coarse.xPositions[i] /= coarse.masses[i];
+			coarse.yPositions[i] /= coarse.masses[i];
+		}
+
+		/**
+		 * a cluster with a fixed node stays at the position of this node
+		 */
+		for (int i = 0; i < fine.nodeCount; i++) {
+			int p = parent[i];
+			if (fine.fixed[i] && !coarse.fixed[p]) {
+				coarse.fixed[p] = true;
+				coarse.xPositions[p] = fine.xPositions[i];
+				coarse.yPositions[p] = fine.yPositions[i];
+			}
+		}
+
+		return coarse;
+	}
+
+	/**
+	 * places the nodes of the given level around the position of their parent in the (already laid out) coarser level
+	 */
+	private void projectPositions(int level) {
+		FRLayoutState fine = levels.get(level);
+		FRLayoutState coarse = levels.get(level + 1);
+		int[] parent = parents.get(level);
+
+		double edgeLength = Math.sqrt(width * height / Math.max(fine.getTotalMass(), 1.0));
+
+		for (int i = 0; i < fine.nodeCount; i++) {
+			if (fine.fixed[i])
+				continue;
+
+			int p = parent[i];
+			double x = coarse.xPositions[p];
+			double y = coarse.yPositions[p];
+
+			/**
+			 * nodes of the same cluster would be placed at the same position -> spread them a bit
+			 */
+			if (coarse.masses[p] > fine.masses[i]) {
+				double angle = random.nextDouble() * 2.0 * Math.PI;
+				double offset = random.nextDouble() * edgeLength / 2.0;
+				x += Math.cos(angle) * offset;
+				y += Math.sin(angle) * offset;
+			}
+
+			fine.xPositions[i] = x;
+			fine.yPositions[i] = y;
+		}
+	}
+
+}
@@ -1,43 +1,92 @@
 package org.caleydo.view.dynamicpathway.layout;
 
-import java.awt.geom.Point2D;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.caleydo.core.view.opengl.layout2.layout.IGLLayout2;
 import org.caleydo.core.view.opengl.layout2.layout.IGLLayoutElement;
-import org.caleydo.view.dynamicpathway.internal.NodeMergingException;
 
 /**
- * calculates new vertex position according to the Fruchterman & Reingold algorithm
- * 
+ * calculates new vertex position according to the Fruchterman & Reingold algorithm or another
+ * {@link ELayoutAlgorithm}, which can be changed at runtime by {@link #setLayoutAlgorithm(ELayoutAlgorithm)}
+ *
+ * The graph is copied into a {@link FRLayoutState}, on which an {@link ILayoutEngine} runs all iterations. The
+ * calculated positions are written back to the nodes & their bounds are set once per call of
+ * {@link #doLayout(List, float, float, IGLLayoutElement, int)} - an animated container moves the nodes from their old to
+ * their new bounds.
+ *
+ * If a layout cache is used, finished layouts are stored by the structure of the graph. If the same graph is laid
+ * out again (e.g. after the pathways were re-added), the cached positions are applied without any iteration.
+ *
+ * Graphs with at least multilevelThreshold nodes are laid out by the {@link FRMultilevelLayoutEngine}, if the
+ * Fruchterman & Reingold algorithm is used.
+ *
+ * If the component layout is enabled, graphs with several connected components are laid out by the
+ * {@link ComponentLayoutEngine}: every component is laid out separately & the components are packed afterwards.
+ *
+ * If the layout is initialized with the original layout, the nodes are placed at their original positions (e.g. the
+ * KEGG coordinates) by the {@link OriginalLayoutInitializer}, which are only refined. If it's initialized by
+ * Pivot-MDS, the {@link PivotMDS} places the nodes by their graph distances to a few pivot nodes, which are only refined
+ * as well.
+ *
+ * Pinned nodes ({@link IFRLayoutNode#isPinned()}) are never moved, nodes with an anchor are pulled towards it. If most
+ * nodes of a force directed layout are pinned, the other ones are placed &amp; refined like in an incremental layout.
+ *
+ * If the incremental layout is enabled, nodes which were already part of the last layout are fixed & only the new
+ * nodes (e.g. of an added context pathway) are placed & refined by the {@link FRLayoutEngine} - only for the force
+ * directed algorithms, the other ones would lose their result, so they lay out the whole graph again.
+ *
+ * If the overlap removal is enabled, the {@link OverlapRemover} pushes overlapping node boxes apart, after the engine
+ * finished - the cache stores the positions without overlaps.
+ *
+ * If the position memory is enabled, the last position of every node is remembered by its layout key. A graph, whose
+ * nodes are mostly known (e.g. re-added pathways), starts from these positions: for the force directed algorithms,
+ * the unknown nodes are placed near their known neighbours & all nodes only settle in a short run of the
+ * {@link FRLayoutEngine} with a low temperature. The other algorithms refine the remembered positions with their own
+ * engine instead, the unknown nodes start from their initial positions.
+ *
+ * As long as neither the {@link IFRLayoutGraph#getTopologyVersion()} nor the size of the area changed, a finished
+ * layout isn't calculated again - the bounds of the nodes &amp; edges are only set again (e.g. after a selection).
+ *
+ * If only the size of the area changed, the current layout is scaled into the new area instead of being calculated
+ * again - followed by a few correction iterations, if they are set. An unfinished layout is scaled & only refined.
+ *
+ * If a time budget is set, each call of {@link #doLayout(List, float, float, IGLLayoutElement, int)} only runs as many
+ * iterations as fit into it & returns true until the layout is finished, so the view keeps rendering in between. The
+ * state of the unfinished layout is kept until the next call.
+ *
+ * If the multi-start is enabled, a Fruchterman &amp; Reingold layout of the whole graph is calculated by the
+ * {@link MultiStartLayoutEngine}: several differently started runs are calculated concurrently &amp; the one with the
+ * lowest stress is kept.
+ *
+ * If the chain compression is enabled, a Fruchterman &amp; Reingold layout runs on the graph without its chains of
+ * degree 2 nodes, which are placed along the edges replacing them by the {@link ChainCompressionLayoutEngine}.
+ *
+ * If the live simulation is enabled, the nodes of a finished layout can be dragged
+ * ({@link #startNodeDrag(IFRLayoutNode)}): the {@link FRLayoutEngine} keeps the state in a simulation, which fixes the
+ * dragged node &amp; moves the nodes around it. Each call of {@link #doLayout(List, float, float, IGLLayoutElement, int)}
+ * runs a few of its ticks &amp; returns true, until the nodes cooled down after the drag. The dragged arrangement is
+ * kept in the cache &amp; position memory, its overlaps aren't removed.
+ *
  * @author Christiane Schwarzl
- * 
+ *
  */
 public class GLFruchtermanReingoldLayout implements IGLLayout2 {
 
 	/**
-	 * current width*height
+	 * if at least this fraction of the nodes is pinned, only the other nodes are placed & refined like in an
+	 * incremental layout
 	 */
-	private double area;
-	private double width;
-	private double height;
-
-	private Map<IFRLayoutNode, Point2D> displacementMap;
-
-	/**
-	 * The optimal edge length for all edges. Used for the attraction & repulsion equations.
-	 */
-	private double globalEdgeLength;
+	private static final double PARTIAL_LAYOUT_PINNED_RATIO = 0.5;
 
 	/**
-	 * If temperature & cooldown are not set by the user, they are set when doLayout is called In order to not override
-	 * the user's setting, we have to save (in the constructor) if it was set or not
+	 * if the position of at least this fraction of the nodes is remembered, the layout starts from these positions
 	 */
-	private boolean isTemperatureAndCooldownSetByUser;
+	private static final double WARM_START_KNOWN_RATIO = 0.5;
 
 	/**
 	 * needed for setting the bounds, so nodes are (re)drawn
@@ -49,40 +98,92 @@ public class GLFruchtermanReingoldLayout implements IGLLayout2 {
 	 */
 	private Set<IGLLayoutElement> iglLayoutElementEdgeSet;
 
-	// parameterizable members
+	/**
+	 * shared by all engines, which calculate in parallel - null if the parallelism is 1
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * runs the actual Fruchterman & Reingold iterations
+	 */
+	private final FRLayoutEngine engine;
+
+	/**
+	 * used instead of the engine for graphs with at least {@link #multilevelNodeThreshold} nodes
+	 */
+	private final FRMultilevelLayoutEngine multilevelEngine;
+	private final int multilevelNodeThreshold;
+
+	private final SGDStressLayoutEngine stressEngine;
+	private final PivotMDSLayoutEngine pivotMDSEngine;
+	private final LayeredLayoutEngine layeredEngine;
+	/**
+	 * null if the chain compression is disabled
+	 */
+	private final ChainCompressionLayoutEngine chainEngine;
 
 	/**
-	 * Defines how many times the nodes are displaced.
+	 * calculates several runs of the Fruchterman &amp; Reingold layout concurrently - null if the multi-start is disabled
 	 */
+	private final MultiStartLayoutEngine multiStartEngine;
+
+	/**
+	 * used for graphs with several components - null if the component layout is disabled
+	 */
+	private final ComponentLayoutEngine componentEngine;
+
+	/**
+	 * algorithm used for the next (not incremental) layout
+	 */
+	private ELayoutAlgorithm layoutAlgorithm;
+
+	/**
+	 * time in milliseconds a whole layout should take at most, {@link ELayoutAlgorithm#AUTOMATIC} chooses its strategy
+	 * by it, the number of iterations &amp; threads
+	 */
+	private int layoutTimeBudgetMs;
 	private final int maxIterations;
+	private final int parallelism;
+
 	/**
-	 * Restricts the maximal displacement in the current iteration.
+	 * strategy chosen for the last automatic layout - null if it wasn't automatic or the layout was split into
+	 * components, which have their own strategies
 	 */
-	private double temperature;
+	private ELayoutStrategy layoutStrategy;
+
 	/**
-	 * Defines the subtrahend of the temperature - updated in each iteration.
+	 * repulsion of the engine, if the algorithm isn't chosen automatically
 	 */
-	private double cooldown;
+	private final ERepulsionMode defaultRepulsionMode;
 
 	/**
-	 * Standard calculation may not be applicable for the current graph. (e.g. graph is too sparse) If the
-	 * repulsionMultiplier is set higher, than not connected nodes are farer apart and vice versa.
-	 * 
-	 * If it is set to -1, it is set to the distance between the 2 nodes. Since the repulsionMultiplier is inversely
-	 * proportional to the repulsion force, this strongly limits the repulsion force
+	 * the engine of the current run - null if the layout was taken from the cache
 	 */
-	private double repulsionMultiplier;
+	private ILayoutEngine activeEngine;
 
-	private boolean isRepulsionMultiplierSetToDistance;
+	private final ELayoutInitialization initialization;
 
 	/**
-	 * Standard calculation may not be applicable for the current graph. (e.g. graph is too sparse) If the
-	 * attractionMultiplier is set smaller, than connected nodes are closer together and vice versa.
-	 * 
-	 * If it is set to -1, it is set to the GlobalEdgeLength. Since the attractionMultiplier is inversely proportional
-	 * to the attraction force, this strongly limits the attraction force
+	 * if true, the overlaps of the node boxes are removed after the engine finished
 	 */
-	private double attractionMultiplier;
+	private final boolean isOverlapRemovalEnabled;
+	private boolean isOverlapRemoved = false;
+
+	/**
+	 * finished layouts by structure of the graph - null if no cache is used
+	 */
+	private final LayoutCache layoutCache;
+	/**
+	 * key of the current layout in the cache & whether it was taken from or already added to the cache
+	 */
+	private long structureHash;
+	private boolean isInLayoutCache = false;
+
+	/**
+	 * last positions of the nodes by their layout key - null if they aren't remembered
+	 */
+	private final PositionMemory positionMemory;
+	private boolean isInPositionMemory = false;
 
 	/**
 	 * added to the width & height, when setting the bounds -> sets bounds bigger
@@ -90,57 +191,89 @@ public class GLFruchtermanReingoldLayout implements IGLLayout2 {
 	private double nodeBoundsExtension;
 
 	/**
-	 * 
-	 * @param maxIterations
-	 *            {@link #maxIterations}
-	 * @param temperature
-	 *            {@link #temperature}
-	 * @param cooldown
-	 *            {@link #cooldown}
-	 * @param repulsionMultiplier
-	 *            {@link #repulsionMultiplier}
-	 * @param attractionMultiplier
-	 *            {@link #attractionMultiplier}
+	 * if true, only nodes which weren't part of the last layout are moved
 	 */
-	public GLFruchtermanReingoldLayout(int maxIterations, double temperature, double cooldown,
-			double repulsionMultiplier, double attractionMultiplier, double nodeBoundsExtension) {
+	private final boolean isIncrementalLayoutEnabled;
 
-		this.isTemperatureAndCooldownSetByUser = false;
-		this.isRepulsionMultiplierSetToDistance = false;
+	/**
+	 * nodes of the last layout & the size of the area they were laid out in - used for the incremental layout
+	 */
+	private final Set<IFRLayoutNode> laidOutNodes;
+	private float lastWidth = -1.0f;
+	private float lastHeight = -1.0f;
 
-		/**
-		 * Temperature & cooldown are set to -1.0 by default, so if these are not -1.0, the user set them by the
-		 * LayoutBuilder
-		 */
-		if (temperature >= 0.0) {
-			this.isTemperatureAndCooldownSetByUser = true;
-			this.temperature = temperature;
-			this.cooldown = cooldown;
-		}
+	/**
+	 * number of iterations the last layout needed - smaller than maxIterations if it converged earlier
+	 */
+	private int lastIterationCount = 0;
 
-		/**
-		 * If it is set to -1, it is set to the distance between the 2 nodes. Since the repulsionMultiplier is inversely
-		 * proportional to the repulsion force, this strongly limits the repulsion force
-		 */
-		if (repulsionMultiplier < 0.0)
-			this.isRepulsionMultiplierSetToDistance = true;
+	/**
+	 * number of iterations correcting a layout, which was scaled to a new size of the area
+	 */
+	private final int resizeIterations;
+
+	/**
+	 * maximal time in milliseconds spent on iterations per call of doLayout - 0 runs all iterations at once
+	 */
+	private final int timeBudgetMs;
+
+	/**
+	 * number of ticks of the live simulation per call of doLayout - 0 if nodes can't be dragged
+	 */
+	private final int simulationTicksPerFrame;
 
-		this.maxIterations = maxIterations;
-		this.repulsionMultiplier = repulsionMultiplier;
-		this.attractionMultiplier = attractionMultiplier;
-		this.nodeBoundsExtension = nodeBoundsExtension;
+	/**
+	 * state of the current (maybe unfinished) layout & the number of edges it was created with
+	 */
+	private FRLayoutState state;
+	private int stateEdgeElementCount;
+	private long stateTopologyVersion;
+
+	/**
+	 * use {@link GLFruchtermanReingoldLayoutBuilder} for creating the layout
+	 *
+	 * @param builder
+	 *            contains the settings of the layout
+	 */
+	GLFruchtermanReingoldLayout(GLFruchtermanReingoldLayoutBuilder builder) {
+
+		this.pool = (builder.parallelism > 1) ? new ForkJoinPool(builder.parallelism) : null;
+		this.engine = new FRLayoutEngine(builder, pool);
+		this.multilevelEngine = new FRMultilevelLayoutEngine(builder, engine);
+		this.multilevelNodeThreshold = builder.multilevelNodeThreshold;
+		this.stressEngine = new SGDStressLayoutEngine(builder);
+		this.pivotMDSEngine = new PivotMDSLayoutEngine();
+		this.layeredEngine = new LayeredLayoutEngine(pool);
+		this.chainEngine = builder.isChainCompressionEnabled ? new ChainCompressionLayoutEngine() : null;
+		this.multiStartEngine = (builder.multiStartRunCount > 1) ? new MultiStartLayoutEngine(builder,
+				builder.multiStartRunCount, pool) : null;
+		this.componentEngine = builder.isComponentLayoutEnabled ? new ComponentLayoutEngine(builder, pool) : null;
+		this.layoutAlgorithm = builder.layoutAlgorithm;
+		this.layoutTimeBudgetMs = builder.layoutTimeBudgetMs;
+		this.maxIterations = builder.maxIterations;
+		this.parallelism = builder.parallelism;
+		this.defaultRepulsionMode = builder.repulsionMode;
+		this.initialization = builder.initialization;
+		this.isOverlapRemovalEnabled = builder.isOverlapRemovalEnabled;
+		this.nodeBoundsExtension = builder.nodeBoundsExtension;
+		this.isIncrementalLayoutEnabled = builder.isIncrementalLayoutEnabled;
+		this.laidOutNodes = Collections.newSetFromMap(new IdentityHashMap<IFRLayoutNode, Boolean>());
+		this.timeBudgetMs = builder.timeBudgetMs;
+		this.resizeIterations = builder.resizeIterations;
+		this.simulationTicksPerFrame = builder.simulationTicksPerFrame;
+		this.layoutCache = (builder.layoutCacheSizeInBytes > 0) ? new LayoutCache(builder.layoutCacheSizeInBytes)
+				: null;
+
+		this.positionMemory = (builder.positionMemoryNodeCount > 0) ? new PositionMemory(
+				builder.positionMemoryNodeCount) : null;
 
-		this.displacementMap = new HashMap<IFRLayoutNode, Point2D>();
 		this.iglLayoutElementNodeSet = new HashSet<IGLLayoutElement>();
 		this.iglLayoutElementEdgeSet = new HashSet<IGLLayoutElement>();
-
-		this.width = 0.0;
-		this.height = 0.0;
 	}
 
 	/**
 	 * performs Fruchterman&Reingold layout
-	 * 
+	 *
 	 * @param children
 	 *            list of vertices & edge, which are redrawn afterwards
 	 * @param w
@@ -151,7 +284,7 @@ public class GLFruchtermanReingoldLayout implements IGLLayout2 {
 	 *            the graph, needed to get the vertex & edgeSet
 	 * @param deltaTimeMs
 	 *            the delta time between the last call and the current call
-	 * @return whether a relayout is needed
+	 * @return whether a relayout is needed, i.e. the time budget was used up before the layout was finished
 	 */
 	@Override
 	public boolean doLayout(List<? extends IGLLayoutElement> children, float w, float h, IGLLayoutElement parent,
@@ -160,20 +293,9 @@ public class GLFruchtermanReingoldLayout implements IGLLayout2 {
 		if (children.size() == 0)
 			return false;
 
-		displacementMap.clear();
 		iglLayoutElementNodeSet.clear();
 		iglLayoutElementEdgeSet.clear();
 
-		width = w;
-		height = h;
-
-		if (!isTemperatureAndCooldownSetByUser) {
-			temperature = width / 10.0;
-			cooldown = temperature / maxIterations;
-		}
-
-		area = width * height;
-
 		for (IGLLayoutElement child : children) {
 			Boolean isNode = child.getLayoutDataAs(Boolean.class, false);
 			if (isNode)
@@ -184,219 +306,525 @@ public class GLFruchtermanReingoldLayout implements IGLLayout2 {
 		}
 
 		IFRLayoutGraph graph = (IFRLayoutGraph) parent.asElement();
-		Set<IFRLayoutNode> nodeSet = graph.getNodeSet();
-		Set<IFRLayoutEdge> edgeSet = graph.getEdgeSet();
+		boolean isResized = w != lastWidth || h != lastHeight;
+		boolean isStateOfCurrentElements = isStateOfCurrentElements(graph);
 
-		assert (iglLayoutElementNodeSet.size() == nodeSet.size());
-
-		globalEdgeLength = (float) Math.sqrt(area / nodeSet.size());
-
-		if (this.attractionMultiplier < 0.0) {
-			this.attractionMultiplier = this.globalEdgeLength;
+		/**
+		 * the graph didn't change since the last finished layout -> only its bounds are set again
+		 */
+		if (!isResized && isStateOfCurrentElements && isLayoutFinished()) {
+			lastIterationCount = 0;
+			state.writeBack();
+			setBounds(w, h);
+			return false;
 		}
 
-		for (int i = 1; i <= maxIterations; i++) {
-
-			/**
-			 * reset Displacement for the current iteration otherwise it would get too big and the nodes would be out of
-			 * bounds
-			 */
-			for (IFRLayoutNode node : nodeSet) {
-				displacementMap.put(node, new Point2D.Double());
-			}
-
-			for (IFRLayoutNode currentNode : nodeSet) {
+		/**
+		 * an unfinished layout is only continued, if neither the graph nor the size changed in between - if only the
+		 * size changed, the current layout is scaled
+		 */
+		if (isResized && lastWidth > 0.0f && lastHeight > 0.0f && isStateOfCurrentElements)
+			rescaleLayout(graph, w, h);
+		else if (isLayoutFinished() || isResized || !isStateOfCurrentElements)
+			startLayout(graph, w, h);
+
+		long endTime = System.nanoTime() + timeBudgetMs * 1000000L;
+		int tickCount = 0;
+		while (iterateLayout()) {
+			if (isSimulationRunning() && ++tickCount >= simulationTicksPerFrame)
+				break;
+			if (timeBudgetMs > 0 && System.nanoTime() >= endTime)
+				break;
+		}
 
-				for (IFRLayoutNode otherNode : nodeSet) {
+		lastIterationCount = (activeEngine == null) ? 0 : activeEngine.getIteration();
 
-					calcRepulsiveForces(currentNode, otherNode);
+		boolean isFinished = isLayoutFinished();
+		if (isFinished && isOverlapRemovalEnabled && !isOverlapRemoved) {
+			OverlapRemover.removeOverlaps(state, w, h, nodeBoundsExtension);
+			isOverlapRemoved = true;
+		}
+		if (isFinished && layoutCache != null && !isInLayoutCache) {
+			layoutCache.put(structureHash, state);
+			isInLayoutCache = true;
+		}
+		if (isFinished && positionMemory != null && !isInPositionMemory) {
+			positionMemory.put(state, w, h);
+			isInPositionMemory = true;
+		}
 
-				}
+		state.writeBack();
+		setBounds(w, h);
 
-			}
+		return !isFinished;
+	}
 
-			for (IFRLayoutEdge edge : edgeSet) {
-				calcAttractiveForces(edge);
-			}
+	/**
+	 * @return number of iterations the last layout needed
+	 */
+	public int getLastIterationCount() {
+		return lastIterationCount;
+	}
 
-			/**
-			 * setting bounds of edges, so they are updated (renderImpl is called)
-			 */
-			for (IGLLayoutElement child : this.iglLayoutElementEdgeSet) {
-				child.setBounds(0.0f, 0.0f, w, h);
-			}
+	public ELayoutAlgorithm getLayoutAlgorithm() {
+		return layoutAlgorithm;
+	}
 
-			for (IGLLayoutElement child : this.iglLayoutElementNodeSet) {
-				IFRLayoutNode node = (IFRLayoutNode) child.asElement();
-				calcNewVertexPositions(child, node);
-			}
+	/**
+	 * changes the algorithm - the whole graph is laid out again with the next call of
+	 * {@link #doLayout(List, float, float, IGLLayoutElement, int)}, so the container has to be relaid out afterwards
+	 *
+	 * @param layoutAlgorithm
+	 *            the algorithm used from now on
+	 */
+	public void setLayoutAlgorithm(ELayoutAlgorithm layoutAlgorithm) {
+		if (layoutAlgorithm == this.layoutAlgorithm)
+			return;
 
-			coolDownTemp();
+		this.layoutAlgorithm = layoutAlgorithm;
+		this.state = null;
+		this.activeEngine = null;
+		laidOutNodes.clear();
 
-		}
+		/**
+		 * otherwise the graph would only settle in the layout of the last algorithm
+		 */
+		if (positionMemory != null)
+			positionMemory.clear();
+	}
 
-		return false;
+	public int getLayoutTimeBudget() {
+		return layoutTimeBudgetMs;
 	}
 
 	/**
-	 * Method that calculates the displacement, using the currentNode's distance to all other nodes
-	 * 
-	 * @param currentNode
-	 *            node for which the displacement is calculated
-	 * 
-	 *            calculate the repulsive forces between all nodes, afterwards the displacement of the node is
-	 *            accordingly set
-	 * @param otherNode
-	 *            current other node, used for calculating the repulsive force
+	 * changes the time budget of a whole layout - if the algorithm is chosen automatically, the graph is laid out
+	 * again with the next call of {@link #doLayout(List, float, float, IGLLayoutElement, int)}
+	 *
+	 * @param layoutTimeBudgetMs
+	 *            time in milliseconds a whole layout should take at most
 	 */
-	private void calcRepulsiveForces(IFRLayoutNode currentNode, IFRLayoutNode otherNode) {
-
-		if (currentNode.equals(otherNode))
+	public void setLayoutTimeBudget(int layoutTimeBudgetMs) {
+		layoutTimeBudgetMs = Math.max(1, layoutTimeBudgetMs);
+		if (layoutTimeBudgetMs == this.layoutTimeBudgetMs)
 			return;
-		
-		double xDistance = currentNode.getCenterX() - otherNode.getCenterX();
-		double yDistance = currentNode.getCenterY() - otherNode.getCenterY();
 
-		double distance = calcDistance(xDistance, yDistance);
+		this.layoutTimeBudgetMs = layoutTimeBudgetMs;
+		if (componentEngine != null)
+			componentEngine.setLayoutTimeBudget(layoutTimeBudgetMs);
 
-		if (isRepulsionMultiplierSetToDistance) {
-			this.repulsionMultiplier = distance;
+		if (layoutAlgorithm == ELayoutAlgorithm.AUTOMATIC) {
+			this.state = null;
+			this.activeEngine = null;
+			laidOutNodes.clear();
 		}
+	}
 
-		double repulsiveForce = globalEdgeLength * globalEdgeLength / (distance * repulsionMultiplier);
+	/**
+	 * @return strategy chosen for the last automatic layout of the whole graph - null if there was none
+	 */
+	public ELayoutStrategy getLayoutStrategy() {
+		return layoutStrategy;
+	}
 
-		if (distance > 0) {
-			double xDisplacementFactor = (xDistance / distance) * repulsiveForce;
-			double yDisplacementFactor = (yDistance / distance) * repulsiveForce;
+	/**
+	 * starts dragging the node: it's fixed at its position &amp; the live simulation reheats the nodes around it - the
+	 * container has to be relaid out afterwards
+	 *
+	 * @param node
+	 *            the dragged node
+	 * @return true if the node can be dragged, i.e. the live simulation is enabled &amp; the node is part of a
+	 *         finished layout
+	 */
+	public boolean startNodeDrag(IFRLayoutNode node) {
+		if (simulationTicksPerFrame <= 0 || state == null || !(isLayoutFinished() || isSimulationRunning()))
+			return false;
 
-			try {
-				editDisplacement(currentNode, xDisplacementFactor, yDisplacementFactor);
-			} catch (NodeMergingException e) {
-				e.printStackTrace();
-			}
+		int index = state.indexOf(node);
+		if (index < 0)
+			return false;
 
+		if (!isSimulationRunning()) {
+			engine.startSimulation(state, lastWidth, lastHeight);
+			activeEngine = engine;
 		}
+		engine.startDrag(index);
 
+		/**
+		 * the dragged arrangement replaces the calculated layout
+		 */
+		isOverlapRemoved = true;
+		isInLayoutCache = false;
+		isInPositionMemory = false;
+		return true;
 	}
 
 	/**
-	 * 
-	 * @param graph
-	 *            needed to get the source & target nodes of the edge
-	 * @param currentEdge
-	 *            edge, which gives us the nodes, which's displacement will be recalculated (to be closer)
+	 * moves the dragged node by the given offset - the container has to be relaid out afterwards
+	 *
+	 * @param node
+	 *            the dragged node
+	 * @param dx
+	 *            offset in x direction
+	 * @param dy
+	 *            offset in y direction
 	 */
-	private void calcAttractiveForces(IFRLayoutEdge currentEdge) {
-		IFRLayoutNode sourceNode = currentEdge.getSource();
-		IFRLayoutNode targetNode = currentEdge.getTarget();
+	public void dragNode(IFRLayoutNode node, double dx, double dy) {
+		if (!isSimulationRunning() || engine.getDraggedNode() != state.indexOf(node))
+			return;
+
+		int index = engine.getDraggedNode();
+		engine.moveDraggedNode(state.getCenterX(index) + dx, state.getCenterY(index) + dy);
+	}
 
-		double xDistance = sourceNode.getCenterX() - targetNode.getCenterX();
-		double yDistance = sourceNode.getCenterY() - targetNode.getCenterY();
+	/**
+	 * releases the dragged node, the nodes around it cool down in the next calls of
+	 * {@link #doLayout(List, float, float, IGLLayoutElement, int)}
+	 *
+	 * @param node
+	 *            the dragged node
+	 */
+	public void endNodeDrag(IFRLayoutNode node) {
+		if (isSimulationRunning() && engine.getDraggedNode() == state.indexOf(node))
+			engine.endDrag();
+	}
 
-		double distance = calcDistance(xDistance, yDistance);
+	/**
+	 * @return true if the current run is the live simulation, i.e. a node is dragged or the nodes cool down after it
+	 */
+	public boolean isSimulationRunning() {
+		return activeEngine == engine && engine.isSimulation() && !engine.isFinished();
+	}
 
-		double attractiveForce = distance * distance / (globalEdgeLength * attractionMultiplier);
+	/**
+	 * stops the threads of the layout - it mustn't be used afterwards
+	 */
+	public void dispose() {
+		if (pool != null)
+			pool.shutdown();
+	}
 
-		if (distance > 0) {
-			double xDisplacementSourceFactor = -(xDistance / distance * attractiveForce);
-			double yDisplacementSourceFactor = -(yDistance / distance * attractiveForce);
-			double xDisplacementTargetFactor = xDistance / distance * attractiveForce;
-			double yDisplacementTargetFactor = yDistance / distance * attractiveForce;
+	/**
+	 * @return the cache of finished layouts, e.g. for reading its hit & miss counters - null if no cache is used
+	 */
+	public LayoutCache getLayoutCache() {
+		return layoutCache;
+	}
 
-			try {
-				editDisplacement(sourceNode, xDisplacementSourceFactor, yDisplacementSourceFactor);
-			} catch (NodeMergingException e) {
-				e.printStackTrace();
+	/**
+	 * creates a new state of the graph & starts the engine on it - incrementally, if possible
+	 *
+	 * Only the Fruchterman &amp; Reingold engine can be started incrementally or warm, the other algorithms would lose
+	 * their result - they are started by their own engine, which refines the remembered positions instead.
+	 */
+	private void startLayout(IFRLayoutGraph graph, float w, float h) {
+		state = FRLayoutState.createFromGraph(graph);
+		stateEdgeElementCount = iglLayoutElementEdgeSet.size();
+		stateTopologyVersion = graph.getTopologyVersion();
+
+		assert (iglLayoutElementNodeSet.size() == state.getNodeCount());
+
+		activeEngine = null;
+		isInLayoutCache = false;
+		if (layoutCache != null) {
+			structureHash = calcStructureHash(graph, w, h);
+			isInLayoutCache = layoutCache.apply(structureHash, state);
+		}
+
+		/**
+		 * the overlaps of cached layouts were already removed
+		 */
+		isOverlapRemoved = isInLayoutCache;
+		isInPositionMemory = false;
+		boolean isForceDirected = isForceDirectedLayout();
+
+		if (isInLayoutCache) {
+			// the cached positions are used without any iteration
+		} else if (isForceDirected
+				&& ((isIncrementalLayoutEnabled && w == lastWidth && h == lastHeight && fixLaidOutNodes())
+						|| isMostlyPinned())) {
+			engine.startIncremental(state, w, h);
+			activeEngine = engine;
+		} else if (isForceDirected && isWarmStartPossible()) {
+			engine.startWarm(state, w, h, positionMemory.apply(state, w, h));
+			activeEngine = engine;
+		} else {
+			boolean isChainCompressed = isChainCompressionPossible();
+			if (isChainCompressed)
+				chainEngine.findChains(state);
+			activeEngine = getEngine(layoutAlgorithm);
+			if (isChainCompressed) {
+				chainEngine.setEngine(activeEngine);
+				activeEngine = chainEngine;
 			}
-			try {
-				editDisplacement(targetNode, xDisplacementTargetFactor, yDisplacementTargetFactor);
-			} catch (NodeMergingException e) {
-				e.printStackTrace();
+			boolean isInitialized = initializePositions(w, h);
+			if (!isForceDirected && isWarmStartPossible()) {
+				/**
+				 * the unknown nodes keep their initial position
+				 */
+				positionMemory.apply(state, w, h);
+				isInitialized = true;
 			}
+			if (isInitialized)
+				activeEngine.startRefinement(state, w, h);
+			else
+				activeEngine.start(state, w, h);
+		}
+
+		laidOutNodes.clear();
+		for (IFRLayoutNode node : state.nodes)
+			laidOutNodes.add(node);
+		lastWidth = w;
+		lastHeight = h;
+	}
 
+	/**
+	 * sets the start positions of the state by the initialization of the layout
+	 *
+	 * @return true if the positions were initialized &amp; only need to be refined
+	 */
+	private boolean initializePositions(float w, float h) {
+		switch (initialization) {
+		case ORIGINAL_LAYOUT:
+			return OriginalLayoutInitializer.initialize(state, w, h);
+		case PIVOT_MDS:
+			return PivotMDS.initialize(state, w, h);
+		case CURRENT_POSITIONS:
+		default:
+			return false;
 		}
 	}
 
 	/**
-	 * @param child
-	 *            used to set the drawing bounds for the rendered object
-	 * @param currentNode
-	 *            node, which's position should be changed
+	 * scales the positions of the current state from the last size of the area to the new one - a finished force
+	 * directed layout is corrected by {@link #resizeIterations} iterations, an unfinished one is refined by its engine
 	 */
-	private void calcNewVertexPositions(IGLLayoutElement child, IFRLayoutNode currentNode) {
-		double xPosition = currentNode.getCenterX();
-		double yPosition = currentNode.getCenterY();
-		double xDisplacement = displacementMap.get(currentNode).getX();
-		double yDisplacement = displacementMap.get(currentNode).getY();
-		double displacementDistance = calcDistance(xDisplacement, yDisplacement);
+	private void rescaleLayout(IFRLayoutGraph graph, float w, float h) {
+		double xScale = w / (double) lastWidth;
+		double yScale = h / (double) lastHeight;
+		for (int i = 0; i < state.getNodeCount(); i++) {
+			state.xPositions[i] *= xScale;
+			state.yPositions[i] *= yScale;
+			state.xAnchors[i] *= xScale;
+			state.yAnchors[i] *= yScale;
+		}
 
-		double maxDisplacementLimit = Math.min(displacementDistance, temperature);
+		isOverlapRemoved = false;
+		isInPositionMemory = false;
+		isInLayoutCache = false;
+		if (layoutCache != null) {
+			structureHash = calcStructureHash(graph, w, h);
+			isInLayoutCache = layoutCache.apply(structureHash, state);
+		}
 
-		if (maxDisplacementLimit > 0.0) {
-			xPosition += (xDisplacement / displacementDistance) * maxDisplacementLimit;
-			yPosition += (yDisplacement / displacementDistance) * maxDisplacementLimit;
+		if (isInLayoutCache) {
+			activeEngine = null;
+			isOverlapRemoved = true;
+		} else if (!isLayoutFinished()) {
+			activeEngine.startRefinement(state, w, h);
+		} else if (resizeIterations > 0 && isForceDirectedLayout()) {
+			engine.startRefinement(state, w, h, resizeIterations, -1.0);
+			activeEngine = engine;
+		} else {
+			activeEngine = null;
 		}
 
-		double vertexWidth = currentNode.getWidth();
-		double vertexHeight = currentNode.getHeight();
+		lastWidth = w;
+		lastHeight = h;
+	}
 
-		double borderWidth = width / 50.0;
+	/**
+	 * @return true if the chains can be compressed for the current algorithm - only the Fruchterman &amp; Reingold
+	 *         layout attracts by the edge weights, the other algorithms don't need the reduction
+	 */
+	private boolean isChainCompressionPossible() {
+		return chainEngine != null && isForceDirectedLayout();
+	}
+
+	/**
+	 * @return true if the current algorithm is the Fruchterman &amp; Reingold layout, i.e. it's selected directly or
+	 *         {@link ELayoutAlgorithm#AUTOMATIC}, which always chooses one of its strategies
+	 */
+	private boolean isForceDirectedLayout() {
+		return layoutAlgorithm == ELayoutAlgorithm.FRUCHTERMAN_REINGOLD
+				|| layoutAlgorithm == ELayoutAlgorithm.AUTOMATIC;
+	}
+
+	/**
+	 * @return true if the position of at least {@link #WARM_START_KNOWN_RATIO} of the nodes is remembered
+	 */
+	private boolean isWarmStartPossible() {
+		if (positionMemory == null)
+			return false;
 
-		if (xPosition < borderWidth) {
-			xPosition = borderWidth + Math.random() * borderWidth * 2.0;
-		} else if (xPosition > (width - borderWidth)) {
-			xPosition = width - borderWidth - Math.random() * borderWidth * 2.0;
+		int knownNodeCount = positionMemory.countKnownNodes(state);
+		return knownNodeCount > 0 && knownNodeCount >= WARM_START_KNOWN_RATIO * state.getNodeCount();
+	}
+
+	/**
+	 * @return the engine, which lays out the graph of the current state by the given algorithm - if the chains are
+	 *         compressed, they have to be found before, as the engine is chosen by the size of the reduced graph
+	 */
+	private ILayoutEngine getEngine(ELayoutAlgorithm algorithm) {
+		boolean isChainCompressed = isChainCompressionPossible();
+		int nodeCount = isChainCompressed ? chainEngine.getReducedNodeCount() : state.getNodeCount();
+		int edgeCount = isChainCompressed ? chainEngine.getReducedEdgeCount() : state.getEdgeCount();
+
+		/**
+		 * components with pinned nodes or anchors are laid out in place, the others are packed around them
+		 */
+		layoutStrategy = null;
+		if (componentEngine != null && state.getComponentCount() > 1) {
+			componentEngine.setLayoutAlgorithm(algorithm);
+			return componentEngine;
 		}
 
-		if (yPosition < borderWidth) {
-			yPosition = borderWidth + Math.random() * borderWidth * 2.0;
-		} else if (yPosition > (height - borderWidth)) {
-			yPosition = height - borderWidth - Math.random() * borderWidth * 2.0;
+		switch (algorithm) {
+		case STRESS_SGD:
+			return stressEngine;
+		case PIVOT_MDS:
+			return pivotMDSEngine;
+		case LAYERED:
+			return layeredEngine;
+		case AUTOMATIC:
+			/**
+			 * every run of the multi-start is calculated on a single thread
+			 */
+			layoutStrategy = LayoutStrategySelector.select(nodeCount, edgeCount, maxIterations,
+					(multiStartEngine != null) ? 1 : parallelism, layoutTimeBudgetMs);
+			return getFREngine(layoutStrategy.getRepulsionMode(), layoutStrategy.isMultilevel());
+		case FRUCHTERMAN_REINGOLD:
+		default:
+			return getFREngine(defaultRepulsionMode, nodeCount >= multilevelNodeThreshold);
 		}
+	}
 
-		double newXPos = xPosition - vertexWidth / 2.0;
-		double newYPos = yPosition - vertexHeight / 2.0;
+	/**
+	 * @return the engine, which lays out the graph by the Fruchterman &amp; Reingold algorithm with the given settings
+	 */
+	private ILayoutEngine getFREngine(ERepulsionMode repulsionMode, boolean isMultilevel) {
+		if (multiStartEngine != null) {
+			multiStartEngine.setStrategy(repulsionMode, isMultilevel);
+			return multiStartEngine;
+		}
 
-		child.setBounds((float) newXPos, (float) newYPos, (float) (vertexWidth + nodeBoundsExtension),
-				(float) (vertexHeight + nodeBoundsExtension));
-		currentNode.setCenter(xPosition, yPosition);
+		engine.setRepulsionMode(repulsionMode);
+		return isMultilevel ? multilevelEngine : engine;
+	}
 
+	/**
+	 * @return true if the current run needs further iterations
+	 */
+	private boolean iterateLayout() {
+		return activeEngine != null && activeEngine.iterate();
 	}
 
-	private double calcDistance(double x, double y) {
-		return Math.sqrt(x * x + y * y);
+	private boolean isLayoutFinished() {
+		return activeEngine == null || activeEngine.isFinished();
 	}
 
-	private void coolDownTemp() {
-		temperature -= cooldown;
-		if (temperature < 0.0)
-			temperature = 0.0;
+	/**
+	 * @return key of the layout in the cache: the graph's structure & settings, the algorithm (& its time budget, if
+	 *         it's chosen automatically) & initialization, the size of the area and the positions of the pinned nodes &
+	 *         anchors
+	 */
+	private long calcStructureHash(IFRLayoutGraph graph, float w, float h) {
+		long hash = state.computeStructureHash();
+		hash = FRLayoutState.mixHash(hash, graph.getLayoutSettingsHash());
+		hash = FRLayoutState.mixHash(hash, layoutAlgorithm.ordinal());
+		if (layoutAlgorithm == ELayoutAlgorithm.AUTOMATIC)
+			hash = FRLayoutState.mixHash(hash, layoutTimeBudgetMs);
+		hash = FRLayoutState.mixHash(hash, initialization.ordinal());
+		hash = FRLayoutState.mixHash(hash, Float.floatToIntBits(w));
+		hash = FRLayoutState.mixHash(hash, Float.floatToIntBits(h));
+
+		/**
+		 * the layout depends on where pinned nodes & anchors are
+		 */
+		for (int i = 0; i < state.getNodeCount(); i++) {
+			if (state.isFixed(i)) {
+				hash = FRLayoutState.mixHash(hash, state.nodeKeys[i]);
+				hash = FRLayoutState.mixHash(hash, Double.doubleToLongBits(state.xPositions[i]));
+				hash = FRLayoutState.mixHash(hash, Double.doubleToLongBits(state.yPositions[i]));
+			}
+			if (!Double.isNaN(state.xAnchors[i])) {
+				hash = FRLayoutState.mixHash(hash, ~state.nodeKeys[i]);
+				hash = FRLayoutState.mixHash(hash, Double.doubleToLongBits(state.xAnchors[i]));
+				hash = FRLayoutState.mixHash(hash, Double.doubleToLongBits(state.yAnchors[i]));
+			}
+		}
+		return hash;
 	}
 
 	/**
-	 * takes old displacement and adds x & y value to it
-	 * 
-	 * @param node
-	 *            which's displacement has to be edited
-	 * @param x
-	 *            the addend for the xDisplacement value
-	 * @param y
-	 *            the addend for the yDisplacement value
-	 * @throws NodeMergingException
-	 * 
-	 */
-	private void editDisplacement(IFRLayoutNode node, double x, double y) throws NodeMergingException {
-
-		if (!displacementMap.containsKey(node))
-			throw new NodeMergingException("Node(" + node + ") is not in displacementMap");
-
-		if (displacementMap.get(node) == null)
-			throw new NodeMergingException("Node(" + node + ") contained no value in displacementMap");
-
-		double xDisplacement = displacementMap.get(node).getX() + x;
-		double yDisplacement = displacementMap.get(node).getY() + y;
-		displacementMap.remove(node);
-		displacementMap.put(node, new Point2D.Double(xDisplacement, yDisplacement));
+	 * @return true if the current state was created from the current version of the graph & its node & edge elements
+	 */
+	private boolean isStateOfCurrentElements(IFRLayoutGraph graph) {
+		if (state == null || graph.getTopologyVersion() != stateTopologyVersion
+				|| state.getNodeCount() != iglLayoutElementNodeSet.size()
+				|| stateEdgeElementCount != iglLayoutElementEdgeSet.size())
+			return false;
+
+		for (IGLLayoutElement child : iglLayoutElementNodeSet) {
+			if (state.indexOf((IFRLayoutNode) child.asElement()) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if at least {@link #PARTIAL_LAYOUT_PINNED_RATIO} of the nodes are pinned
+	 */
+	private boolean isMostlyPinned() {
+		state.updateMovableNodes();
+		int pinnedNodeCount = state.getNodeCount() - state.getMovableNodeCount();
+		return pinnedNodeCount > 0 && pinnedNodeCount >= PARTIAL_LAYOUT_PINNED_RATIO * state.getNodeCount();
+	}
+
+	/**
+	 * sets all nodes fixed, which were part of the last layout
+	 *
+	 * @return true if at least one node was fixed, i.e. an incremental layout is possible
+	 */
+	private boolean fixLaidOutNodes() {
+		boolean isAnyNodeFixed = false;
+		for (int i = 0; i < state.getNodeCount(); i++) {
+			if (laidOutNodes.contains(state.nodes[i])) {
+				state.setFixed(i, true);
+				isAnyNodeFixed = true;
+			}
+		}
+		state.updateMovableNodes();
+		return isAnyNodeFixed;
+	}
+
+	/**
+	 * sets the bounds of all nodes & edges once, so they are (re)drawn at their new position - the iterations only
+	 * change the state
+	 */
+	private void setBounds(float w, float h) {
+		/**
+		 * setting bounds of edges, so they are updated (renderImpl is called)
+		 */
+		for (IGLLayoutElement child : this.iglLayoutElementEdgeSet) {
+			child.setBounds(0.0f, 0.0f, w, h);
+		}
+
+		for (IGLLayoutElement child : this.iglLayoutElementNodeSet) {
+			IFRLayoutNode node = (IFRLayoutNode) child.asElement();
+			int index = state.indexOf(node);
+			if (index < 0)
+				continue;
+
+			double vertexWidth = node.getWidth();
+			double vertexHeight = node.getHeight();
+
+			double newXPos = state.getCenterX(index) - vertexWidth / 2.0;
+			double newYPos = state.getCenterY(index) - vertexHeight / 2.0;
+
+			child.setBounds((float) newXPos, (float) newYPos, (float) (vertexWidth + nodeBoundsExtension),
+					(float) (vertexHeight + nodeBoundsExtension));
+		}
 	}
 
 }
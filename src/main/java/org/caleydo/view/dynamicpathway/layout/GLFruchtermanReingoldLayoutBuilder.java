@@ -3,16 +3,47 @@ package org.caleydo.view.dynamicpathway.layout;
 public class GLFruchtermanReingoldLayoutBuilder {
 	
 	private static final int MAX_ITERATIONS = 700;
+	private static final double BARNES_HUT_THETA = 0.8;
+	private static final int INCREMENTAL_ITERATIONS = 100;
+	private static final int CONVERGENCE_ITERATIONS = 10;
+	private static final int LAYOUT_TIME_BUDGET_MS = 2000;
 	
-	private int maxIterations = MAX_ITERATIONS;		
-	private double temperature = -1.0;
-	private double cooldown = -1.0;
-	private double repulsionMultiplier = 1.0;
-	private double attractionMultiplier = 1.0;
-	private double nodeBoundsExtension = 1.0;
+	/**
+	 * the settings are read by the layout & its engine when they are created
+	 */
+	int maxIterations = MAX_ITERATIONS;		
+	double temperature = -1.0;
+	double cooldown = -1.0;
+	double repulsionMultiplier = 1.0;
+	double attractionMultiplier = 1.0;
+	double nodeBoundsExtension = 1.0;
+	ERepulsionMode repulsionMode = ERepulsionMode.EXACT;
+	double barnesHutTheta = BARNES_HUT_THETA;
+	int parallelism = 1;
+	boolean isRandomSeedSet = false;
+	long randomSeed = 0L;
+	boolean isIncrementalLayoutEnabled = false;
+	int incrementalIterations = INCREMENTAL_ITERATIONS;
+	double convergenceTolerance = 0.0;
+	int convergenceIterations = CONVERGENCE_ITERATIONS;
+	int timeBudgetMs = 0;
+	int multilevelNodeThreshold = Integer.MAX_VALUE;
+	long layoutCacheSizeInBytes = 0L;
+	ELayoutAlgorithm layoutAlgorithm = ELayoutAlgorithm.FRUCHTERMAN_REINGOLD;
+	int layoutTimeBudgetMs = LAYOUT_TIME_BUDGET_MS;
+	ELayoutInitialization initialization = ELayoutInitialization.CURRENT_POSITIONS;
+	boolean isComponentLayoutEnabled = false;
+	double anchorWeight = 1.0;
+	ECoolingSchedule coolingSchedule = ECoolingSchedule.LINEAR;
+	boolean isOverlapRemovalEnabled = false;
+	int positionMemoryNodeCount = 0;
+	int resizeIterations = 0;
+	int simulationTicksPerFrame = 0;
+	int multiStartRunCount = 1;
+	boolean isChainCompressionEnabled = false;
 
 	public GLFruchtermanReingoldLayout buildLayout() {		
-		return (new GLFruchtermanReingoldLayout(maxIterations, temperature, cooldown, repulsionMultiplier, attractionMultiplier, nodeBoundsExtension));
+		return (new GLFruchtermanReingoldLayout(this));
 	}
 	
 	public GLFruchtermanReingoldLayoutBuilder maxIterations(int maxIterations) {
@@ -40,5 +71,225 @@ public class GLFruchtermanReingoldLayoutBuilder {
 		this.nodeBoundsExtension = nodeBoundsExtension;
 		return this;
 	}
+	
+	public GLFruchtermanReingoldLayoutBuilder repulsionMode(ERepulsionMode repulsionMode) {
+		this.repulsionMode = repulsionMode;
+		return this;
+	}
+	
+	/**
+	 * @param barnesHutTheta
+	 *            opening angle for {@link ERepulsionMode#BARNES_HUT} - 0 is exact, the bigger the value, the faster &
+	 *            less exact the approximation
+	 */
+	public GLFruchtermanReingoldLayoutBuilder barnesHutTheta(double barnesHutTheta) {
+		this.barnesHutTheta = barnesHutTheta;
+		return this;
+	}
+	
+	/**
+	 * @param parallelism
+	 *            number of threads used for calculating the forces, 1 calculates them in the calling thread
+	 */
+	public GLFruchtermanReingoldLayoutBuilder parallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		return this;
+	}
+	
+	/**
+	 * @param randomSeed
+	 *            seed for the random placement of nodes, which left the canvas - with the same seed the same layout is
+	 *            calculated, whatever the {@link #parallelism(int)} is
+	 */
+	public GLFruchtermanReingoldLayoutBuilder randomSeed(long randomSeed) {
+		this.isRandomSeedSet = true;
+		this.randomSeed = randomSeed;
+		return this;
+	}
+	
+	/**
+	 * @param isIncrementalLayoutEnabled
+	 *            if true, nodes which were already laid out keep their position & only the newly added nodes are placed
+	 *            near their neighbours & refined in a short run
+	 */
+	public GLFruchtermanReingoldLayoutBuilder incrementalLayout(boolean isIncrementalLayoutEnabled) {
+		this.isIncrementalLayoutEnabled = isIncrementalLayoutEnabled;
+		return this;
+	}
+	
+	/**
+	 * @param incrementalIterations
+	 *            number of iterations used for refining the new nodes in an incremental layout
+	 */
+	public GLFruchtermanReingoldLayoutBuilder incrementalIterations(int incrementalIterations) {
+		this.incrementalIterations = incrementalIterations;
+		return this;
+	}
+	
+	/**
+	 * stops the layout before maxIterations, as soon as it converged
+	 * 
+	 * @param convergenceTolerance
+	 *            if the relative change of the system's energy or the maximal node displacement (relative to the
+	 *            optimal edge length) of an iteration is below it, the iteration counts as stable - 0 disables the
+	 *            convergence detection
+	 * @param convergenceIterations
+	 *            number of consecutive stable iterations, after which the layout stops
+	 */
+	public GLFruchtermanReingoldLayoutBuilder convergence(double convergenceTolerance, int convergenceIterations) {
+		this.convergenceTolerance = convergenceTolerance;
+		this.convergenceIterations = Math.max(1, convergenceIterations);
+		return this;
+	}
+	
+	/**
+	 * @param timeBudgetMs
+	 *            maximal time in milliseconds spent on iterations per frame, the layout continues in the next frames
+	 *            until it is finished - 0 runs all iterations at once
+	 */
+	public GLFruchtermanReingoldLayoutBuilder timeBudget(int timeBudgetMs) {
+		this.timeBudgetMs = Math.max(0, timeBudgetMs);
+		return this;
+	}
+	
+	/**
+	 * @param multilevelNodeThreshold
+	 *            graphs with at least this many nodes are coarsened, the coarsest level is laid out & the finer levels
+	 *            are only refined
+	 */
+	public GLFruchtermanReingoldLayoutBuilder multilevelThreshold(int multilevelNodeThreshold) {
+		this.multilevelNodeThreshold = multilevelNodeThreshold;
+		return this;
+	}
+	
+	/**
+	 * @param layoutCacheSizeInBytes
+	 *            maximal memory used for caching finished layouts by the structure of the graph - 0 disables the cache
+	 */
+	public GLFruchtermanReingoldLayoutBuilder layoutCache(long layoutCacheSizeInBytes) {
+		this.layoutCacheSizeInBytes = layoutCacheSizeInBytes;
+		return this;
+	}
+	
+	/**
+	 * @param layoutAlgorithm
+	 *            algorithm used for laying out the graph, can be changed later by
+	 *            {@link GLFruchtermanReingoldLayout#setLayoutAlgorithm(ELayoutAlgorithm)}
+	 */
+	public GLFruchtermanReingoldLayoutBuilder layoutAlgorithm(ELayoutAlgorithm layoutAlgorithm) {
+		this.layoutAlgorithm = layoutAlgorithm;
+		return this;
+	}
+	
+	/**
+	 * @param layoutTimeBudgetMs
+	 *            time in milliseconds a whole layout should take at most - {@link ELayoutAlgorithm#AUTOMATIC} chooses
+	 *            the most exact strategy, which fits into it, can be changed later by
+	 *            {@link GLFruchtermanReingoldLayout#setLayoutTimeBudget(int)}
+	 */
+	public GLFruchtermanReingoldLayoutBuilder layoutTimeBudget(int layoutTimeBudgetMs) {
+		this.layoutTimeBudgetMs = Math.max(1, layoutTimeBudgetMs);
+		return this;
+	}
+	
+	/**
+	 * @param initialization
+	 *            start positions of a layout - if the original layout is used, it is only refined with a tenth of the
+	 *            iterations
+	 */
+	public GLFruchtermanReingoldLayoutBuilder initialization(ELayoutInitialization initialization) {
+		this.initialization = initialization;
+		return this;
+	}
+	
+	/**
+	 * @param isComponentLayoutEnabled
+	 *            if true, the connected components of a graph are laid out separately (in parallel, if the
+	 *            {@link #parallelism(int)} is bigger than 1) & packed into the area afterwards
+	 */
+	public GLFruchtermanReingoldLayoutBuilder componentLayout(boolean isComponentLayoutEnabled) {
+		this.isComponentLayoutEnabled = isComponentLayoutEnabled;
+		return this;
+	}
+	
+	/**
+	 * @param anchorWeight
+	 *            a node with an anchor ({@link IFRLayoutNode#getAnchorX()}) is pulled towards it like by an edge of
+	 *            this weight
+	 */
+	public GLFruchtermanReingoldLayoutBuilder anchorWeight(double anchorWeight) {
+		this.anchorWeight = anchorWeight;
+		return this;
+	}
+	
+	/**
+	 * @param coolingSchedule
+	 *            how the temperature changes between the iterations - {@link ECoolingSchedule#ADAPTIVE} adapts it to
+	 *            the progress of the layout, the maxIterations stay the upper bound
+	 */
+	public GLFruchtermanReingoldLayoutBuilder coolingSchedule(ECoolingSchedule coolingSchedule) {
+		this.coolingSchedule = coolingSchedule;
+		return this;
+	}
+	
+	/**
+	 * @param isOverlapRemovalEnabled
+	 *            if true, overlapping node boxes are pushed apart by a sweep line after the layout finished
+	 */
+	public GLFruchtermanReingoldLayoutBuilder overlapRemoval(boolean isOverlapRemovalEnabled) {
+		this.isOverlapRemovalEnabled = isOverlapRemovalEnabled;
+		return this;
+	}
+	
+	/**
+	 * @param positionMemoryNodeCount
+	 *            number of nodes, whose last position is remembered by their layout key - a graph with mostly known
+	 *            nodes starts from these positions & is only refined. 0 disables the memory
+	 */
+	public GLFruchtermanReingoldLayoutBuilder positionMemory(int positionMemoryNodeCount) {
+		this.positionMemoryNodeCount = Math.max(0, positionMemoryNodeCount);
+		return this;
+	}
+	
+	/**
+	 * @param resizeIterations
+	 *            if only the size of the area changed, the layout is scaled into the new area & corrected by this many
+	 *            iterations - 0 only scales it
+	 */
+	public GLFruchtermanReingoldLayoutBuilder resizeIterations(int resizeIterations) {
+		this.resizeIterations = Math.max(0, resizeIterations);
+		return this;
+	}
+	
+	/**
+	 * @param simulationTicksPerFrame
+	 *            if bigger than 0, nodes can be dragged in a finished layout: a live simulation, which runs this many
+	 *            ticks per frame, lets the nodes around the dragged one follow - 0 disables dragging
+	 */
+	public GLFruchtermanReingoldLayoutBuilder liveSimulation(int simulationTicksPerFrame) {
+		this.simulationTicksPerFrame = Math.max(0, simulationTicksPerFrame);
+		return this;
+	}
+	
+	/**
+	 * @param multiStartRunCount
+	 *            if bigger than 1, a Fruchterman &amp; Reingold layout of the whole graph runs this many differently
+	 *            started runs concurrently (one per thread of the parallelism) &amp; keeps the one with the lowest
+	 *            stress
+	 */
+	public GLFruchtermanReingoldLayoutBuilder multiStart(int multiStartRunCount) {
+		this.multiStartRunCount = Math.max(1, multiStartRunCount);
+		return this;
+	}
+
+	/**
+	 * @param isChainCompressionEnabled
+	 *            if true, chains of degree 2 nodes are replaced by single edges for a Fruchterman &amp; Reingold layout
+	 *            &amp; placed along them afterwards
+	 */
+	public GLFruchtermanReingoldLayoutBuilder chainCompression(boolean isChainCompressionEnabled) {
+		this.isChainCompressionEnabled = isChainCompressionEnabled;
+		return this;
+	}
 
-} 
+}
@@ -16,5 +16,17 @@ public interface IFRLayoutGraph {
 	Set<IFRLayoutNode> getNodeSet();
 	
 	Set<IFRLayoutEdge> getEdgeSet();
+
+	/**
+	 * @return hash of the settings, which define how the graph was created (e.g. the vertex environment size), used
+	 *         together with the graph's structure as key of the {@link LayoutCache}
+	 */
+	long getLayoutSettingsHash();
+
+	/**
+	 * @return version of the graph's topology - has to change, whenever a node or an edge is added or removed. As long
+	 *         as it doesn't change, the layout isn't calculated again, but only its bounds are set again
+	 */
+	long getTopologyVersion();
 	
 }
@@ -21,5 +21,43 @@ public interface IFRLayoutNode {
 	public double getWidth();
 
 	public GLElement setBounds(float x, float y, float width, float height);
+
+	/**
+	 * @return key, which identifies the node independent of the node object (e.g. derived from its vertices), so the
+	 *         layout of a rebuilt graph can be found in the {@link LayoutCache}
+	 */
+	public long getLayoutKey();
+
+	/**
+	 * @return x coordinate of the node's center in its original layout (e.g. the KEGG pathway) - NaN if it has none
+	 */
+	public double getOriginalCenterX();
+
+	/**
+	 * @return y coordinate of the node's center in its original layout (e.g. the KEGG pathway) - NaN if it has none
+	 */
+	public double getOriginalCenterY();
+
+	/**
+	 * @return index of the node's original layout (e.g. 0 for the focus pathway, 1.. for the context pathways), the
+	 *         original layouts are placed next to each other in this order
+	 */
+	public int getOriginalLayoutIndex();
+
+	/**
+	 * @return true if the layout must not move the node - it still repulses &amp; attracts the other nodes
+	 */
+	public boolean isPinned();
+
+	/**
+	 * @return x coordinate of the point the node is pulled towards (like by an edge to a fixed node) - NaN if the node
+	 *         has no anchor
+	 */
+	public double getAnchorX();
+
+	/**
+	 * @return y coordinate of the point the node is pulled towards - NaN if the node has no anchor
+	 */
+	public double getAnchorY();
 	
 }
@@ -0,0 +1,59 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * Interface of the algorithms, which calculate the node positions for the {@link GLFruchtermanReingoldLayout}.
+ *
+ * An engine works on a {@link FRLayoutState}, which is created from any {@link IFRLayoutGraph}, so the engine can be
+ * exchanged at runtime (see {@link ELayoutAlgorithm}). A run is started with
+ * {@link #start(FRLayoutState, double, double)} and is then either executed completely by {@link #run()} or iteration
+ * by iteration by {@link #iterate()}, e.g. for spreading it over several frames.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public interface ILayoutEngine {
+
+	/**
+	 * starts a new run on the given state
+	 *
+	 * @param state
+	 *            positions & edges of the graph - the positions are used as start positions
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 */
+	public void start(FRLayoutState state, double width, double height);
+
+	/**
+	 * starts a short run, which only refines the current positions of the state, e.g. those of an initial layout
+	 *
+	 * @param state
+	 *            positions & edges of the graph - the positions are used as start positions
+	 * @param width
+	 *            width of the area the nodes are placed in
+	 * @param height
+	 *            height of the area the nodes are placed in
+	 */
+	public void startRefinement(FRLayoutState state, double width, double height);
+
+	/**
+	 * executes all remaining iterations of the current run
+	 */
+	public void run();
+
+	/**
+	 * executes one iteration & writes the resulting positions into the state
+	 *
+	 * @return true if further iterations are needed
+	 */
+	public boolean iterate();
+
+	public boolean isFinished();
+
+	/**
+	 * @return number of iterations executed in the current run
+	 */
+	public int getIteration();
+
+}
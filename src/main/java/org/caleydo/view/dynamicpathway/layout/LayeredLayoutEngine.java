@@ -0,0 +1,767 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Layered layout of directed graphs (Sugiyama, Tagawa &amp; Toda: "Methods for Visual Understanding of Hierarchical
+ * System Structures"), which shows the direction of the edges as a flow from top to bottom.
+ *
+ * The run is prepared by {@link #start(FRLayoutState, double, double)}:
+ * <ol>
+ * <li>cycle removal: the edges closing a cycle in a depth first search (started from the nodes without incoming edges)
+ * are reversed</li>
+ * <li>layering by the longest path: every node is placed one layer below its lowest predecessor - nodes without
+ * predecessors are moved down to the layer above their highest successor</li>
+ * <li>edges spanning several layers are split by dummy nodes, so every edge connects neighbouring layers</li>
+ * </ol>
+ * An iteration is a sweep of the barycentric crossing reduction: every node is sorted in its layer by the mean
+ * position of its neighbours in both neighbouring layers. The odd layers are sorted first, then the even ones - the
+ * layers of one half don't depend on each other, so they are sorted on a {@link ForkJoinPool}, if the engine gets one.
+ * The result doesn't depend on the parallelism. The order with the fewest crossings is kept, the run
+ * stops as soon as there are no crossings or they didn't decrease for {@link #STALL_SWEEPS} sweeps.
+ *
+ * After every sweep the coordinates are assigned: the layers are placed at equal distances &amp; the nodes of a layer
+ * are alternately pulled towards their upper &amp; lower neighbours, while their order &amp; the gaps between them are
+ * kept - in a few passes for the unfinished layout &amp; in more passes for the finished one. All steps are linear in
+ * the number of nodes, edges &amp; dummy nodes, except the sorting.
+ *
+ * A refinement starts the crossing reduction from the current horizontal order of the nodes. Fixed nodes keep their
+ * position, anchors are ignored.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class LayeredLayoutEngine implements ILayoutEngine {
+
+	private static final int MAX_SWEEPS = 24;
+
+	/**
+	 * the run stops, if the number of crossings didn't decrease for this many sweeps
+	 */
+	private static final int STALL_SWEEPS = 4;
+
+	/**
+	 * number of alternating passes of the coordinate assignment of the finished layout
+	 */
+	private static final int COORDINATE_PASSES = 8;
+
+	/**
+	 * number of passes of the coordinate assignment after an unfinished sweep, which is only shown until the next one
+	 */
+	private static final int PREVIEW_COORDINATE_PASSES = 2;
+
+	/**
+	 * gap between two neighbouring nodes of a layer, relative to the mean node width - dummy nodes only keep half of
+	 * it
+	 */
+	private static final double NODE_GAP_RATIO = 0.5;
+
+	/**
+	 * dummy nodes are pulled stronger towards their neighbours than real ones, so long edges become straight
+	 */
+	private static final double DUMMY_WEIGHT = 2.0;
+
+	/**
+	 * null if the layers are sorted in the calling thread
+	 */
+	private final ForkJoinPool pool;
+
+	// state of the current run
+
+	private FRLayoutState state;
+	private double width;
+	private double height;
+	private int iteration;
+	private boolean isConverged;
+
+	/**
+	 * number of real &amp; dummy nodes - the real nodes have the ordinals of the state, the dummy nodes follow them
+	 */
+	private int totalNodeCount;
+	private int layerCount;
+	private int[] layers;
+
+	/**
+	 * the neighbours of node v in the layer below are downNodes[downOffsets[v]] to downNodes[downOffsets[v + 1] - 1],
+	 * the ones in the layer above are stored alike
+	 */
+	private int[] downOffsets;
+	private int[] downNodes;
+	private int[] upOffsets;
+	private int[] upNodes;
+
+	/**
+	 * nodes of every layer in their current order &amp; the position of every node in its layer
+	 */
+	private int[][] layerNodes;
+	private int[] positions;
+	private int[][] bestLayerNodes;
+	private long bestCrossingCount;
+	private int stalledSweeps;
+
+	/**
+	 * sort key of every node, written by the sorting of its layer
+	 */
+	private double[] barycenters;
+	private double[] xCoordinates;
+	private double nodeGap;
+
+	private SweepTask oddLayersTask;
+	private SweepTask evenLayersTask;
+
+	/**
+	 * @param pool
+	 *            pool sorting the layers, it's owned by the caller - null for a sequential engine, e.g. if the engine
+	 *            itself runs on a pool
+	 */
+	LayeredLayoutEngine(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		start(state, width, height, false);
+	}
+
+	/**
+	 * starts the crossing reduction from the current horizontal order of the nodes
+	 */
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		start(state, width, height, true);
+	}
+
+	@Override
+	public void run() {
+		while (iterate()) {
+			// nothing to do in between
+		}
+	}
+
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		execute(oddLayersTask);
+		execute(evenLayersTask);
+		iteration++;
+
+		long crossingCount = countCrossings();
+		if (crossingCount < bestCrossingCount) {
+			bestCrossingCount = crossingCount;
+			stalledSweeps = 0;
+			for (int l = 0; l < layerCount; l++)
+				System.arraycopy(layerNodes[l], 0, bestLayerNodes[l], 0, layerNodes[l].length);
+		} else {
+			stalledSweeps++;
+		}
+		isConverged = bestCrossingCount == 0 || stalledSweeps >= STALL_SWEEPS;
+
+		/**
+		 * the finished layout shows the best order
+		 */
+		if (isFinished() && stalledSweeps > 0) {
+			for (int l = 0; l < layerCount; l++) {
+				System.arraycopy(bestLayerNodes[l], 0, layerNodes[l], 0, layerNodes[l].length);
+				for (int j = 0; j < layerNodes[l].length; j++)
+					positions[layerNodes[l][j]] = j;
+			}
+		}
+
+		assignCoordinates(isFinished() ? COORDINATE_PASSES : PREVIEW_COORDINATE_PASSES);
+		return !isFinished();
+	}
+
+	@Override
+	public boolean isFinished() {
+		return state == null || isConverged || iteration >= MAX_SWEEPS || state.movableNodeCount == 0;
+	}
+
+	/**
+	 * @return number of crossing reduction sweeps executed in the current run
+	 */
+	@Override
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * @return number of edge crossings of the best order found so far, counted between the segments of the split
+	 *         edges
+	 */
+	public long getCrossingCount() {
+		return bestCrossingCount;
+	}
+
+	/**
+	 * @return number of layers of the current run
+	 */
+	public int getLayerCount() {
+		return layerCount;
+	}
+
+	private void start(FRLayoutState state, double width, double height, boolean isRefinement) {
+		this.state = state;
+		this.width = width;
+		this.height = height;
+		this.iteration = 0;
+		this.isConverged = false;
+		this.stalledSweeps = 0;
+
+		state.updateMovableNodes();
+		int nodeCount = state.nodeCount;
+
+		/**
+		 * outgoing edges of every node, for the cycle removal
+		 */
+		int[] outOffsets = new int[nodeCount + 1];
+		int[] inDegrees = new int[nodeCount];
+		for (int e = 0; e < state.edgeCount; e++) {
+			if (state.edgeSources[e] != state.edgeTargets[e]) {
+				outOffsets[state.edgeSources[e] + 1]++;
+				inDegrees[state.edgeTargets[e]]++;
+			}
+		}
+		for (int i = 0; i < nodeCount; i++)
+			outOffsets[i + 1] += outOffsets[i];
+		int[] outEdges = new int[outOffsets[nodeCount]];
+		int[] fillPositions = Arrays.copyOf(outOffsets, nodeCount);
+		for (int e = 0; e < state.edgeCount; e++) {
+			if (state.edgeSources[e] != state.edgeTargets[e])
+				outEdges[fillPositions[state.edgeSources[e]]++] = e;
+		}
+
+		double[] sortKeys = new double[nodeCount];
+		boolean[] isReversed = removeCycles(outOffsets, outEdges, inDegrees, sortKeys);
+		if (isRefinement) {
+			for (int i = 0; i < nodeCount; i++)
+				sortKeys[i] = state.xPositions[i];
+		}
+
+		/**
+		 * the edges of the acyclic graph - self loops are dropped
+		 */
+		int dagEdgeCount = outEdges.length;
+		int[] dagSources = new int[dagEdgeCount];
+		int[] dagTargets = new int[dagEdgeCount];
+		int d = 0;
+		for (int e = 0; e < state.edgeCount; e++) {
+			int source = state.edgeSources[e];
+			int target = state.edgeTargets[e];
+			if (source == target)
+				continue;
+			dagSources[d] = isReversed[e] ? target : source;
+			dagTargets[d] = isReversed[e] ? source : target;
+			d++;
+		}
+
+		int[] nodeLayers = assignLayers(dagSources, dagTargets);
+		splitLongEdges(dagSources, dagTargets, nodeLayers, sortKeys);
+		orderLayers();
+		createTasks();
+
+		double totalWidth = 0.0;
+		for (int i = 0; i < nodeCount; i++)
+			totalWidth += state.widths[i];
+		nodeGap = Math.max(NODE_GAP_RATIO * totalWidth / Math.max(nodeCount, 1), 1.0);
+		xCoordinates = new double[totalNodeCount];
+
+		bestCrossingCount = countCrossings();
+		bestLayerNodes = new int[layerCount][];
+		for (int l = 0; l < layerCount; l++)
+			bestLayerNodes[l] = layerNodes[l].clone();
+	}
+
+	/**
+	 * finds the edges closing a cycle by an iterative depth first search, which starts from the nodes without incoming
+	 * edges &amp; then from the remaining unvisited ones
+	 *
+	 * @param sortKeys
+	 *            receives the preorder of the search, the initial order of the nodes in their layers
+	 * @return for every edge, whether it has to be reversed
+	 */
+	private boolean[] removeCycles(int[] outOffsets, int[] outEdges, int[] inDegrees, double[] sortKeys) {
+		int nodeCount = state.nodeCount;
+		boolean[] isReversed = new boolean[state.edgeCount];
+		/**
+		 * 0: not visited, 1: on the stack, 2: finished
+		 */
+		byte[] colors = new byte[nodeCount];
+		int[] stack = new int[nodeCount];
+		int[] edgeCursors = new int[nodeCount];
+		int visitedCount = 0;
+
+		for (int pass = 0; pass < 2; pass++) {
+			for (int root = 0; root < nodeCount; root++) {
+				if (colors[root] != 0 || (pass == 0 && inDegrees[root] > 0))
+					continue;
+
+				int stackSize = 0;
+				stack[stackSize++] = root;
+				colors[root] = 1;
+				edgeCursors[root] = outOffsets[root];
+				sortKeys[root] = visitedCount++;
+
+				while (stackSize > 0) {
+					int u = stack[stackSize - 1];
+					if (edgeCursors[u] == outOffsets[u + 1]) {
+						colors[u] = 2;
+						stackSize--;
+						continue;
+					}
+
+					int e = outEdges[edgeCursors[u]++];
+					int v = state.edgeTargets[e];
+					if (colors[v] == 1) {
+						isReversed[e] = true;
+					} else if (colors[v] == 0) {
+						stack[stackSize++] = v;
+						colors[v] = 1;
+						edgeCursors[v] = outOffsets[v];
+						sortKeys[v] = visitedCount++;
+					}
+				}
+			}
+		}
+		return isReversed;
+	}
+
+	/**
+	 * places every node one layer below its lowest predecessor (in topological order) - nodes without predecessors are
+	 * moved down to the layer above their highest successor afterwards, so their edges don't get longer than needed
+	 *
+	 * @return layer of every node
+	 */
+	private int[] assignLayers(int[] dagSources, int[] dagTargets) {
+		int nodeCount = state.nodeCount;
+		int dagEdgeCount = dagSources.length;
+
+		int[] outOffsets = new int[nodeCount + 1];
+		int[] inDegrees = new int[nodeCount];
+		for (int e = 0; e < dagEdgeCount; e++) {
+			outOffsets[dagSources[e] + 1]++;
+			inDegrees[dagTargets[e]]++;
+		}
+		for (int i = 0; i < nodeCount; i++)
+			outOffsets[i + 1] += outOffsets[i];
+		int[] successors = new int[dagEdgeCount];
+		int[] fillPositions = Arrays.copyOf(outOffsets, nodeCount);
+		for (int e = 0; e < dagEdgeCount; e++)
+			successors[fillPositions[dagSources[e]]++] = dagTargets[e];
+
+		int[] nodeLayers = new int[nodeCount];
+		int[] remainingInDegrees = inDegrees.clone();
+		int[] queue = new int[nodeCount];
+		int queueEnd = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			if (inDegrees[i] == 0)
+				queue[queueEnd++] = i;
+		}
+		for (int q = 0; q < queueEnd; q++) {
+			int u = queue[q];
+			for (int s = outOffsets[u]; s < outOffsets[u + 1]; s++) {
+				int v = successors[s];
+				nodeLayers[v] = Math.max(nodeLayers[v], nodeLayers[u] + 1);
+				if (--remainingInDegrees[v] == 0)
+					queue[queueEnd++] = v;
+			}
+		}
+
+		for (int i = 0; i < nodeCount; i++) {
+			if (inDegrees[i] > 0 || outOffsets[i] == outOffsets[i + 1])
+				continue;
+
+			int minSuccessorLayer = Integer.MAX_VALUE;
+			for (int s = outOffsets[i]; s < outOffsets[i + 1]; s++)
+				minSuccessorLayer = Math.min(minSuccessorLayer, nodeLayers[successors[s]]);
+			nodeLayers[i] = minSuccessorLayer - 1;
+		}
+
+		layerCount = 0;
+		for (int i = 0; i < nodeCount; i++)
+			layerCount = Math.max(layerCount, nodeLayers[i] + 1);
+		return nodeLayers;
+	}
+
+	/**
+	 * inserts a dummy node into every layer an edge spans &amp; builds the neighbourhoods of all nodes
+	 *
+	 * @param sortKeys
+	 *            initial sort keys of the real nodes - the dummy nodes get keys interpolated between their edge's
+	 *            nodes
+	 */
+	private void splitLongEdges(int[] dagSources, int[] dagTargets, int[] nodeLayers, double[] sortKeys) {
+		int nodeCount = state.nodeCount;
+		int dagEdgeCount = dagSources.length;
+
+		int dummyNodeCount = 0;
+		for (int e = 0; e < dagEdgeCount; e++)
+			dummyNodeCount += nodeLayers[dagTargets[e]] - nodeLayers[dagSources[e]] - 1;
+		totalNodeCount = nodeCount + dummyNodeCount;
+		int segmentCount = dagEdgeCount + dummyNodeCount;
+
+		layers = Arrays.copyOf(nodeLayers, totalNodeCount);
+		barycenters = Arrays.copyOf(sortKeys, totalNodeCount);
+		int[] segmentSources = new int[segmentCount];
+		int[] segmentTargets = new int[segmentCount];
+		int segment = 0;
+		int dummy = nodeCount;
+		for (int e = 0; e < dagEdgeCount; e++) {
+			int source = dagSources[e];
+			int target = dagTargets[e];
+			int span = nodeLayers[target] - nodeLayers[source];
+			int previous = source;
+			for (int k = 1; k < span; k++) {
+				layers[dummy] = nodeLayers[source] + k;
+				barycenters[dummy] = sortKeys[source] + (sortKeys[target] - sortKeys[source]) * k / span;
+				segmentSources[segment] = previous;
+				segmentTargets[segment] = dummy;
+				segment++;
+				previous = dummy++;
+			}
+			segmentSources[segment] = previous;
+			segmentTargets[segment] = target;
+			segment++;
+		}
+
+		downOffsets = new int[totalNodeCount + 1];
+		upOffsets = new int[totalNodeCount + 1];
+		for (int s = 0; s < segmentCount; s++) {
+			downOffsets[segmentSources[s] + 1]++;
+			upOffsets[segmentTargets[s] + 1]++;
+		}
+		for (int v = 0; v < totalNodeCount; v++) {
+			downOffsets[v + 1] += downOffsets[v];
+			upOffsets[v + 1] += upOffsets[v];
+		}
+		downNodes = new int[segmentCount];
+		upNodes = new int[segmentCount];
+		int[] downFillPositions = Arrays.copyOf(downOffsets, totalNodeCount);
+		int[] upFillPositions = Arrays.copyOf(upOffsets, totalNodeCount);
+		for (int s = 0; s < segmentCount; s++) {
+			downNodes[downFillPositions[segmentSources[s]]++] = segmentTargets[s];
+			upNodes[upFillPositions[segmentTargets[s]]++] = segmentSources[s];
+		}
+	}
+
+	/**
+	 * fills the layers &amp; sorts them by the initial sort keys
+	 */
+	private void orderLayers() {
+		int[] layerSizes = new int[layerCount];
+		for (int v = 0; v < totalNodeCount; v++)
+			layerSizes[layers[v]]++;
+
+		layerNodes = new int[layerCount][];
+		for (int l = 0; l < layerCount; l++)
+			layerNodes[l] = new int[layerSizes[l]];
+		Arrays.fill(layerSizes, 0);
+		for (int v = 0; v < totalNodeCount; v++)
+			layerNodes[layers[v]][layerSizes[layers[v]]++] = v;
+
+		positions = new int[totalNodeCount];
+		for (int l = 0; l < layerCount; l++)
+			sortByBarycenters(layerNodes[l]);
+	}
+
+	private void createTasks() {
+		LayerTask[] oddLayerTasks = new LayerTask[layerCount / 2];
+		LayerTask[] evenLayerTasks = new LayerTask[(layerCount + 1) / 2];
+		for (int l = 0; l < layerCount; l++) {
+			if (l % 2 == 1)
+				oddLayerTasks[l / 2] = new LayerTask(l);
+			else
+				evenLayerTasks[l / 2] = new LayerTask(l);
+		}
+		oddLayersTask = new SweepTask(oddLayerTasks);
+		evenLayersTask = new SweepTask(evenLayerTasks);
+	}
+
+	/**
+	 * sorts all layers of the task either on the pool or one after the other in the calling thread
+	 */
+	private void execute(SweepTask task) {
+		if (pool == null) {
+			for (LayerTask layerTask : task.layerTasks)
+				layerTask.compute();
+		} else {
+			task.reinitialize();
+			pool.invoke(task);
+		}
+	}
+
+	/**
+	 * sorts the nodes of the layer by the mean relative position of their neighbours in the layers above &amp; below -
+	 * nodes without neighbours keep their relative position
+	 */
+	private void sortLayer(int layer) {
+		int[] nodes = layerNodes[layer];
+		for (int j = 0; j < nodes.length; j++) {
+			int v = nodes[j];
+			double sum = 0.0;
+			int count = 0;
+			for (int a = upOffsets[v]; a < upOffsets[v + 1]; a++) {
+				sum += calcRelativePosition(upNodes[a]);
+				count++;
+			}
+			for (int a = downOffsets[v]; a < downOffsets[v + 1]; a++) {
+				sum += calcRelativePosition(downNodes[a]);
+				count++;
+			}
+			barycenters[v] = (count > 0) ? sum / count : calcRelativePosition(v);
+		}
+		sortByBarycenters(nodes);
+	}
+
+	/**
+	 * @return position of the node in its layer, scaled to [0, 1], so layers of different sizes can be compared
+	 */
+	private double calcRelativePosition(int v) {
+		return (positions[v] + 0.5) / layerNodes[layers[v]].length;
+	}
+
+	/**
+	 * sorts the nodes by their barycenters - ties keep their current order - &amp; updates their positions
+	 */
+	private void sortByBarycenters(int[] nodes) {
+		Integer[] sortedNodes = new Integer[nodes.length];
+		for (int j = 0; j < nodes.length; j++)
+			sortedNodes[j] = nodes[j];
+		Arrays.sort(sortedNodes, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer node1, Integer node2) {
+				return Double.compare(barycenters[node1], barycenters[node2]);
+			}
+		});
+
+		for (int j = 0; j < nodes.length; j++) {
+			nodes[j] = sortedNodes[j];
+			positions[nodes[j]] = j;
+		}
+	}
+
+	/**
+	 * counts the crossings between every pair of neighbouring layers by the inversions of the lower positions of the
+	 * segments, sorted by their upper positions - with a Fenwick tree in O(segments · log(layer size))
+	 */
+	private long countCrossings() {
+		int maxLayerSize = 0;
+		for (int l = 0; l < layerCount; l++)
+			maxLayerSize = Math.max(maxLayerSize, layerNodes[l].length);
+		int[] tree = new int[maxLayerSize + 1];
+		int[] lowerPositions = new int[maxLayerSize];
+
+		long crossingCount = 0;
+		for (int l = 0; l + 1 < layerCount; l++) {
+			int lowerLayerSize = layerNodes[l + 1].length;
+			Arrays.fill(tree, 0, lowerLayerSize + 1, 0);
+			int insertedCount = 0;
+
+			for (int u : layerNodes[l]) {
+				int degree = downOffsets[u + 1] - downOffsets[u];
+				if (degree == 0)
+					continue;
+
+				for (int a = 0; a < degree; a++)
+					lowerPositions[a] = positions[downNodes[downOffsets[u] + a]];
+				Arrays.sort(lowerPositions, 0, degree);
+
+				for (int a = 0; a < degree; a++) {
+					/**
+					 * segments inserted before, which end to the right of this one
+					 */
+					int notRightCount = 0;
+					for (int t = lowerPositions[a] + 1; t > 0; t -= t & -t)
+						notRightCount += tree[t];
+					crossingCount += insertedCount - notRightCount;
+				}
+				for (int a = 0; a < degree; a++) {
+					for (int t = lowerPositions[a] + 1; t <= lowerLayerSize; t += t & -t)
+						tree[t]++;
+				}
+				insertedCount += degree;
+			}
+		}
+		return crossingCount;
+	}
+
+	/**
+	 * places the layers at equal distances from top to bottom &amp; the nodes of each layer in their order, pulled
+	 * towards their neighbours - then fits the result into the area &amp; writes the positions of the movable nodes
+	 */
+	private void assignCoordinates(int passCount) {
+		int maxLayerSize = 0;
+		for (int l = 0; l < layerCount; l++)
+			maxLayerSize = Math.max(maxLayerSize, layerNodes[l].length);
+		double[] offsets = new double[maxLayerSize];
+		double[] targets = new double[maxLayerSize];
+		double[] weights = new double[maxLayerSize];
+		int[] blockEnds = new int[maxLayerSize];
+		double[] blockSums = new double[maxLayerSize];
+		double[] blockWeights = new double[maxLayerSize];
+
+		for (int l = 0; l < layerCount; l++) {
+			int[] nodes = layerNodes[l];
+			calcOffsets(nodes, offsets);
+			double center = (nodes.length > 0) ? offsets[nodes.length - 1] / 2.0 : 0.0;
+			for (int j = 0; j < nodes.length; j++)
+				xCoordinates[nodes[j]] = offsets[j] - center;
+		}
+
+		for (int pass = 0; pass < passCount; pass++) {
+			boolean isDownPass = pass % 2 == 0;
+			for (int s = 1; s < layerCount; s++) {
+				int[] nodes = layerNodes[isDownPass ? s : layerCount - 1 - s];
+				int[] neighbourOffsets = isDownPass ? upOffsets : downOffsets;
+				int[] neighbourNodes = isDownPass ? upNodes : downNodes;
+
+				calcOffsets(nodes, offsets);
+				for (int j = 0; j < nodes.length; j++) {
+					int v = nodes[j];
+					int count = neighbourOffsets[v + 1] - neighbourOffsets[v];
+					double target = xCoordinates[v];
+					if (count > 0) {
+						double sum = 0.0;
+						for (int a = neighbourOffsets[v]; a < neighbourOffsets[v + 1]; a++)
+							sum += xCoordinates[neighbourNodes[a]];
+						target = sum / count;
+					}
+					targets[j] = target - offsets[j];
+					weights[j] = (v >= state.nodeCount) ? DUMMY_WEIGHT : 1.0;
+				}
+
+				placeInOrder(nodes.length, targets, weights, blockEnds, blockSums, blockWeights);
+				for (int j = 0; j < nodes.length; j++)
+					xCoordinates[nodes[j]] = targets[j] + offsets[j];
+			}
+		}
+
+		fitIntoArea();
+	}
+
+	/**
+	 * @param offsets
+	 *            receives the minimal distance of every node from the first one of the layer
+	 */
+	private void calcOffsets(int[] nodes, double[] offsets) {
+		for (int j = 0; j < nodes.length; j++) {
+			if (j == 0) {
+				offsets[j] = 0.0;
+				continue;
+			}
+			offsets[j] = offsets[j - 1] + (calcNodeWidth(nodes[j - 1]) + calcNodeWidth(nodes[j])) / 2.0
+					+ (isDummy(nodes[j - 1]) || isDummy(nodes[j]) ? nodeGap / 2.0 : nodeGap);
+		}
+	}
+
+	private double calcNodeWidth(int v) {
+		return isDummy(v) ? 0.0 : state.widths[v];
+	}
+
+	private boolean isDummy(int v) {
+		return v >= state.nodeCount;
+	}
+
+	/**
+	 * finds the non decreasing values closest to the targets (by the weighted squared distance) by pooling adjacent
+	 * violators in linear time - added to the offsets of the nodes, they keep the order &amp; the gaps
+	 *
+	 * @param values
+	 *            the targets, replaced by the resulting values
+	 */
+	private static void placeInOrder(int count, double[] values, double[] weights, int[] blockEnds, double[] blockSums,
+			double[] blockWeights) {
+		int blockCount = 0;
+		for (int j = 0; j < count; j++) {
+			blockEnds[blockCount] = j + 1;
+			blockSums[blockCount] = values[j] * weights[j];
+			blockWeights[blockCount] = weights[j];
+			blockCount++;
+
+			while (blockCount > 1
+					&& blockSums[blockCount - 2] / blockWeights[blockCount - 2] >= blockSums[blockCount - 1]
+							/ blockWeights[blockCount - 1]) {
+				blockEnds[blockCount - 2] = blockEnds[blockCount - 1];
+				blockSums[blockCount - 2] += blockSums[blockCount - 1];
+				blockWeights[blockCount - 2] += blockWeights[blockCount - 1];
+				blockCount--;
+			}
+		}
+
+		int j = 0;
+		for (int b = 0; b < blockCount; b++) {
+			double value = blockSums[b] / blockWeights[b];
+			for (; j < blockEnds[b]; j++)
+				values[j] = value;
+		}
+	}
+
+	/**
+	 * centers the layout in the area - the layers fill its height, but are at most an edge length of the Fruchterman
+	 * &amp; Reingold layout apart, &amp; the layers are shrunk horizontally, if they are wider than the area
+	 */
+	private void fitIntoArea() {
+		double border = width / 50.0;
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		for (int v = 0; v < totalNodeCount; v++) {
+			minX = Math.min(minX, xCoordinates[v]);
+			maxX = Math.max(maxX, xCoordinates[v]);
+		}
+		double xScale = Math.min(1.0, Math.max(width - 2.0 * border, 0.0) / Math.max(maxX - minX, Double.MIN_VALUE));
+		double layoutCenterX = (minX + maxX) / 2.0;
+
+		double edgeLength = Math.sqrt(width * height / Math.max(state.getTotalMass(), 1.0));
+		double layerDistance = (layerCount > 1) ? Math.min(Math.max(height - 2.0 * border, 0.0) / (layerCount - 1),
+				edgeLength) : 0.0;
+
+		for (int m = 0; m < state.movableNodeCount; m++) {
+			int i = state.movableNodes[m];
+			state.xPositions[i] = width / 2.0 + (xCoordinates[i] - layoutCenterX) * xScale;
+			state.yPositions[i] = height / 2.0 + (layers[i] - (layerCount - 1) / 2.0) * layerDistance;
+		}
+	}
+
+	/**
+	 * sorts a single layer
+	 */
+	private final class LayerTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int layer;
+
+		public LayerTask(int layer) {
+			this.layer = layer;
+		}
+
+		@Override
+		protected void compute() {
+			sortLayer(layer);
+		}
+	}
+
+	/**
+	 * sorts independent layers on the pool &amp; waits for them
+	 */
+	private static final class SweepTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final LayerTask[] layerTasks;
+
+		public SweepTask(LayerTask[] layerTasks) {
+			this.layerTasks = layerTasks;
+		}
+
+		@Override
+		protected void compute() {
+			for (LayerTask layerTask : layerTasks)
+				layerTask.reinitialize();
+			invokeAll(layerTasks);
+		}
+	}
+
+}
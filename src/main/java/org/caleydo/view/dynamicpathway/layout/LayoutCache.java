@@ -0,0 +1,150 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of finished layouts, keyed by a structural hash of the displayed graph (see
+ * {@link FRLayoutState#computeStructureHash()}).
+ *
+ * An entry stores the node centers sorted by the nodes' layout keys, so they can be applied to newly created node
+ * elements of the same graph. If the cached layouts need more memory than the bound, the least recently used ones are
+ * removed.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public final class LayoutCache {
+
+	/**
+	 * estimated memory of an entry without its arrays
+	 */
+	private static final long ENTRY_OVERHEAD_BYTES = 96L;
+
+	private final long maxSizeInBytes;
+	private long sizeInBytes = 0L;
+
+	/**
+	 * access ordered -> iterates from the least to the most recently used entry
+	 */
+	private final LinkedHashMap<Long, Entry> entries;
+
+	private int hitCount = 0;
+	private int missCount = 0;
+
+	/**
+	 * @param maxSizeInBytes
+	 *            maximal (estimated) memory used by the cached layouts
+	 */
+	public LayoutCache(long maxSizeInBytes) {
+		this.maxSizeInBytes = maxSizeInBytes;
+		this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * sets the positions of the state to the cached ones, if there are any
+	 *
+	 * @param structureHash
+	 *            key of the layout
+	 * @param state
+	 *            state of the graph, the positions are written into it
+	 * @return true if the layout was cached
+	 */
+	public boolean apply(long structureHash, FRLayoutState state) {
+		Entry entry = entries.get(structureHash);
+		int[] sortedNodes = (entry == null) ? null : state.getNodesSortedByKey();
+
+		/**
+		 * a different graph with the same hash would have different node keys
+		 */
+		if (entry == null || !Arrays.equals(entry.nodeKeys, state.getNodeKeys(sortedNodes))) {
+			missCount++;
+			return false;
+		}
+
+		for (int i = 0; i < sortedNodes.length; i++) {
+			state.xPositions[sortedNodes[i]] = entry.xPositions[i];
+			state.yPositions[sortedNodes[i]] = entry.yPositions[i];
+		}
+
+		hitCount++;
+		return true;
+	}
+
+	/**
+	 * adds the (finished) layout of the state to the cache
+	 *
+	 * @param structureHash
+	 *            key of the layout
+	 * @param state
+	 *            the laid out state
+	 */
+	public void put(long structureHash, FRLayoutState state) {
+		int[] sortedNodes = state.getNodesSortedByKey();
+		int nodeCount = sortedNodes.length;
+
+		Entry entry = new Entry(state.getNodeKeys(sortedNodes), new double[nodeCount], new double[nodeCount]);
+		for (int i = 0; i < nodeCount; i++) {
+			entry.xPositions[i] = state.xPositions[sortedNodes[i]];
+			entry.yPositions[i] = state.yPositions[sortedNodes[i]];
+		}
+
+		if (entry.getSizeInBytes() > maxSizeInBytes)
+			return;
+
+		Entry replacedEntry = entries.put(structureHash, entry);
+		if (replacedEntry != null)
+			sizeInBytes -= replacedEntry.getSizeInBytes();
+		sizeInBytes += entry.getSizeInBytes();
+
+		for (Iterator<Map.Entry<Long, Entry>> iter = entries.entrySet().iterator(); sizeInBytes > maxSizeInBytes
+				&& iter.hasNext();) {
+			Entry leastRecentlyUsed = iter.next().getValue();
+			sizeInBytes -= leastRecentlyUsed.getSizeInBytes();
+			iter.remove();
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+		sizeInBytes = 0L;
+	}
+
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	public int getMissCount() {
+		return missCount;
+	}
+
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return estimated memory used by the cached layouts
+	 */
+	public long getSizeInBytes() {
+		return sizeInBytes;
+	}
+
+	private static final class Entry {
+		private final long[] nodeKeys;
+		private final double[] xPositions;
+		private final double[] yPositions;
+
+		public Entry(long[] nodeKeys, double[] xPositions, double[] yPositions) {
+			this.nodeKeys = nodeKeys;
+			this.xPositions = xPositions;
+			this.yPositions = yPositions;
+		}
+
+		public long getSizeInBytes() {
+			return ENTRY_OVERHEAD_BYTES + 24L * nodeKeys.length;
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+
+/**
+ * Cheap measures of the quality of a layout, e.g. for choosing the best of several runs.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class LayoutQuality {
+
+	private LayoutQuality() {
+	}
+
+	/**
+	 * Normalized stress of the layout, sampled by breadth first searches from sourceCount evenly spread nodes.
+	 *
+	 * For every reached pair, the ratio of the distance in the layout to the distance in the graph (in edges) is taken.
+	 * With weights 1 / graph distance² &amp; the optimal scale of the layout, the stress is the squared coefficient of
+	 * variation of these ratios - 0 if all pairs are exactly as far apart as in the graph. Pairs of different components
+	 * are ignored. The costs are O(sourceCount * (n + m)).
+	 *
+	 * @param state
+	 *            the laid out state
+	 * @param sourceCount
+	 *            number of nodes the distances are measured from
+	 * @return the stress - 0 if no pair is connected
+	 */
+	public static double calcSampledStress(FRLayoutState state, int sourceCount) {
+		state.buildAdjacency();
+
+		int nodeCount = state.nodeCount;
+		int[] distances = new int[nodeCount];
+		int[] queue = new int[nodeCount];
+		int usedSourceCount = Math.min(sourceCount, nodeCount);
+
+		double ratioSum = 0.0;
+		double squaredRatioSum = 0.0;
+		long pairCount = 0;
+
+		for (int s = 0; s < usedSourceCount; s++) {
+			int source = (int) ((long) nodeCount * s / usedSourceCount);
+
+			Arrays.fill(distances, -1);
+			distances[source] = 0;
+			queue[0] = source;
+			int queueEnd = 1;
+			for (int q = 0; q < queueEnd; q++) {
+				int u = queue[q];
+				for (int a = state.adjacencyOffsets[u]; a < state.adjacencyOffsets[u + 1]; a++) {
+					int v = state.adjacentNodes[a];
+					if (distances[v] < 0) {
+						distances[v] = distances[u] + 1;
+						queue[queueEnd++] = v;
+					}
+				}
+			}
+
+			for (int q = 1; q < queueEnd; q++) {
+				int target = queue[q];
+				double xDistance = state.xPositions[source] - state.xPositions[target];
+				double yDistance = state.yPositions[source] - state.yPositions[target];
+				double ratio = Math.sqrt(xDistance * xDistance + yDistance * yDistance) / distances[target];
+
+				ratioSum += ratio;
+				squaredRatioSum += ratio * ratio;
+				pairCount++;
+			}
+		}
+
+		if (pairCount == 0 || ratioSum <= 0.0)
+			return 0.0;
+
+		double meanRatio = ratioSum / pairCount;
+		double variance = Math.max(squaredRatioSum / pairCount - meanRatio * meanRatio, 0.0);
+		return variance / (meanRatio * meanRatio);
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * Chooses the {@link ELayoutStrategy} for {@link ELayoutAlgorithm#AUTOMATIC}: the most exact strategy, whose
+ * estimated time fits into the layout time budget.
+ *
+ * The time of a layout is estimated from the number of nodes &amp; edges, assuming that all iterations are run. The
+ * costs per iteration were measured on a single thread: the exact repulsion grows with n², the Barnes-Hut repulsion with
+ * n log n. If neither fits into the budget, the multilevel layout is used, whose levels are mostly refined by a few
+ * iterations.
+ *
+ * The grid repulsion isn't chosen: it wasn't faster than Barnes-Hut for pathway-like graphs &amp; ignores the
+ * repulsion of distant nodes.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class LayoutStrategySelector {
+
+	/**
+	 * time of the exact repulsion of a pair of nodes in an iteration
+	 */
+	private static final double EXACT_NS_PER_NODE_PAIR = 10.0;
+
+	/**
+	 * time of the Barnes-Hut repulsion per n log n in an iteration, incl. building the quad tree
+	 */
+	private static final double BARNES_HUT_NS_PER_NODE_LOG_NODE = 200.0;
+
+	/**
+	 * time of the attraction of an edge in an iteration
+	 */
+	private static final double NS_PER_EDGE = 20.0;
+
+	private LayoutStrategySelector() {
+	}
+
+	/**
+	 * @param nodeCount
+	 *            number of nodes of the graph
+	 * @param edgeCount
+	 *            number of edges of the graph
+	 * @param iterations
+	 *            maximal number of iterations of the layout
+	 * @param parallelism
+	 *            number of threads calculating the forces
+	 * @param layoutTimeBudgetMs
+	 *            time in milliseconds the whole layout should take at most
+	 * @return the most exact strategy, which fits into the budget
+	 */
+	public static ELayoutStrategy select(int nodeCount, int edgeCount, int iterations, int parallelism,
+			int layoutTimeBudgetMs) {
+		double budgetNs = layoutTimeBudgetMs * 1.0e6 * Math.max(parallelism, 1);
+		double edgeNs = (double) iterations * edgeCount * NS_PER_EDGE;
+
+		double exactNs = (double) iterations * nodeCount * nodeCount * EXACT_NS_PER_NODE_PAIR + edgeNs;
+		if (exactNs <= budgetNs)
+			return ELayoutStrategy.EXACT;
+
+		double logNodeCount = Math.log(Math.max(nodeCount, 2)) / Math.log(2.0);
+		double barnesHutNs = (double) iterations * nodeCount * logNodeCount * BARNES_HUT_NS_PER_NODE_LOG_NODE + edgeNs;
+		if (barnesHutNs <= budgetNs)
+			return ELayoutStrategy.BARNES_HUT;
+
+		return ELayoutStrategy.MULTILEVEL;
+	}
+
+}
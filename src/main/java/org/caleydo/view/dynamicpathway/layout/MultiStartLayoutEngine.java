@@ -0,0 +1,266 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs several Fruchterman &amp; Reingold layouts of the same graph concurrently &amp; keeps the best one.
+ *
+ * All runs start from the same positions, but every run except the first one jitters the movable nodes by up to
+ * {@link #START_JITTER} edge lengths &amp; uses its own random seed - so the runs end in different local minima. Each
+ * run gets its own copy of the state &amp; its own sequential engine (the {@link FRLayoutEngine} or the
+ * {@link FRMultilevelLayoutEngine}). An iteration advances every unfinished run by one iteration, the runs are
+ * calculated on a {@link ForkJoinPool}, if the engine gets one.
+ *
+ * The first run works on the state itself, so it's shown while the runs are iterated. When all runs are finished,
+ * every result is scored by its sampled stress ({@link LayoutQuality#calcSampledStress(FRLayoutState, int)}) &amp;
+ * the positions of the best one are copied into the state.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class MultiStartLayoutEngine implements ILayoutEngine {
+
+	/**
+	 * maximal random offset of a node's start position in all but the first run, relative to the edge length
+	 */
+	private static final double START_JITTER = 0.5;
+
+	/**
+	 * number of nodes the stress of a result is sampled from
+	 */
+	private static final int STRESS_SOURCE_COUNT = 32;
+
+	private final FRLayoutEngine[] engines;
+	private final FRMultilevelLayoutEngine[] multilevelEngines;
+	/**
+	 * null if the runs are calculated one after the other in the calling thread
+	 */
+	private final ForkJoinPool pool;
+
+	private final boolean isRandomSeedSet;
+	private final long randomSeed;
+
+	/**
+	 * if true, the runs use the multilevel engines
+	 */
+	private boolean isMultilevel = false;
+
+	// state of the current run
+
+	private FRLayoutState state;
+	private FRLayoutState[] runStates;
+	private ILayoutEngine[] runEngines;
+	private RunsTask runsTask;
+	private int iteration;
+	/**
+	 * ordinal of the run with the lowest stress - -1 until all runs are finished
+	 */
+	private int bestRun;
+	private double[] stresses;
+
+	/**
+	 * @param builder
+	 *            contains the settings of the layout
+	 * @param runCount
+	 *            number of concurrent runs
+	 * @param pool
+	 *            pool the runs are calculated on, it's owned by the caller - null if they are calculated one after
+	 *            the other
+	 */
+	MultiStartLayoutEngine(GLFruchtermanReingoldLayoutBuilder builder, int runCount, ForkJoinPool pool) {
+		this.isRandomSeedSet = builder.isRandomSeedSet;
+		this.randomSeed = builder.randomSeed;
+
+		this.engines = new FRLayoutEngine[runCount];
+		this.multilevelEngines = new FRMultilevelLayoutEngine[runCount];
+		for (int r = 0; r < runCount; r++) {
+			engines[r] = new FRLayoutEngine(builder, null, randomSeed + r);
+			multilevelEngines[r] = new FRMultilevelLayoutEngine(builder, engines[r], randomSeed + r);
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * @param repulsionMode
+	 *            how the runs calculate the repulsive forces from the next run on
+	 * @param isMultilevel
+	 *            if true, the runs use the multilevel variant
+	 */
+	void setStrategy(ERepulsionMode repulsionMode, boolean isMultilevel) {
+		this.isMultilevel = isMultilevel;
+		for (FRLayoutEngine engine : engines)
+			engine.setRepulsionMode(repulsionMode);
+	}
+
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		start(state, width, height, false);
+	}
+
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		start(state, width, height, true);
+	}
+
+	@Override
+	public void run() {
+		while (iterate()) {
+			// nothing to do in between
+		}
+	}
+
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		if (pool == null) {
+			for (RunTask runTask : runsTask.runTasks)
+				runTask.compute();
+		} else {
+			runsTask.reinitialize();
+			pool.invoke(runsTask);
+		}
+		iteration++;
+
+		for (ILayoutEngine runEngine : runEngines) {
+			if (!runEngine.isFinished())
+				return true;
+		}
+
+		selectBestRun();
+		return false;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return state == null || bestRun >= 0;
+	}
+
+	/**
+	 * @return number of iterations executed in the current run, i.e. the iterations of the longest run
+	 */
+	@Override
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * @return ordinal of the run, whose result was kept - -1 if the runs aren't finished yet
+	 */
+	public int getBestRun() {
+		return bestRun;
+	}
+
+	/**
+	 * @return sampled stress of the result of each run - null if the runs aren't finished yet
+	 */
+	public double[] getStresses() {
+		return stresses;
+	}
+
+	private void start(FRLayoutState state, double width, double height, boolean isRefinement) {
+		int runCount = engines.length;
+		this.state = state;
+		this.iteration = 0;
+		this.bestRun = -1;
+		this.stresses = null;
+		this.runStates = new FRLayoutState[runCount];
+		this.runEngines = new ILayoutEngine[runCount];
+
+		state.updateMovableNodes();
+		double edgeLength = Math.sqrt(width * height / Math.max(state.getTotalMass(), 1.0));
+
+		RunTask[] runTasks = new RunTask[runCount];
+		for (int r = 0; r < runCount; r++) {
+			runStates[r] = (r == 0) ? state : state.copyWithoutGraph();
+			if (r > 0)
+				jitterStartPositions(runStates[r], START_JITTER * edgeLength, r);
+
+			runEngines[r] = isMultilevel ? multilevelEngines[r] : engines[r];
+			if (isRefinement)
+				runEngines[r].startRefinement(runStates[r], width, height);
+			else
+				runEngines[r].start(runStates[r], width, height);
+
+			runTasks[r] = new RunTask(runEngines[r]);
+		}
+		runsTask = new RunsTask(runTasks);
+	}
+
+	/**
+	 * moves every movable node of the run's state by a random offset
+	 */
+	private void jitterStartPositions(FRLayoutState runState, double maxOffset, int run) {
+		Random random = isRandomSeedSet ? new Random(randomSeed + run) : new Random();
+
+		runState.updateMovableNodes();
+		for (int m = 0; m < runState.movableNodeCount; m++) {
+			int i = runState.movableNodes[m];
+			double angle = random.nextDouble() * 2.0 * Math.PI;
+			double offset = random.nextDouble() * maxOffset;
+			runState.xPositions[i] += Math.cos(angle) * offset;
+			runState.yPositions[i] += Math.sin(angle) * offset;
+		}
+	}
+
+	/**
+	 * scores the results of all runs &amp; copies the positions of the best one into the state - the first one wins
+	 * ties, so the state is only changed, if another run is really better
+	 */
+	private void selectBestRun() {
+		stresses = new double[runStates.length];
+		int bestRun = 0;
+		for (int r = 0; r < runStates.length; r++) {
+			stresses[r] = LayoutQuality.calcSampledStress(runStates[r], STRESS_SOURCE_COUNT);
+			if (stresses[r] < stresses[bestRun])
+				bestRun = r;
+		}
+
+		if (bestRun > 0)
+			state.copyPositionsFrom(runStates[bestRun]);
+		this.bestRun = bestRun;
+	}
+
+	/**
+	 * advances a single run by one iteration
+	 */
+	private static final class RunTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final ILayoutEngine engine;
+
+		public RunTask(ILayoutEngine engine) {
+			this.engine = engine;
+		}
+
+		@Override
+		protected void compute() {
+			if (!engine.isFinished())
+				engine.iterate();
+		}
+	}
+
+	/**
+	 * advances all runs on the pool &amp; waits for them
+	 */
+	private static final class RunsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RunTask[] runTasks;
+
+		public RunsTask(RunTask[] runTasks) {
+			this.runTasks = runTasks;
+		}
+
+		@Override
+		protected void compute() {
+			for (RunTask runTask : runTasks)
+				runTask.reinitialize();
+			invokeAll(runTasks);
+		}
+	}
+
+}
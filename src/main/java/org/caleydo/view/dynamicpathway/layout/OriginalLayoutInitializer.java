@@ -0,0 +1,121 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+
+/**
+ * Places the nodes of a {@link FRLayoutState} at their original positions (see
+ * {@link IFRLayoutNode#getOriginalCenterX()}), so the layout only has to refine a good layout instead of untangling
+ * random positions.
+ *
+ * The nodes are grouped by their {@link IFRLayoutNode#getOriginalLayoutIndex()}. The area is split into a grid of
+ * equally sized cells, one per original layout in the order of their index, & every original layout is scaled into its
+ * cell, keeping its aspect ratio. Fixed nodes keep their position.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class OriginalLayoutInitializer {
+
+	/**
+	 * fraction of a cell's width &amp; height left empty on each side, so the original layouts don't touch
+	 */
+	private static final double CELL_MARGIN = 0.05;
+
+	private OriginalLayoutInitializer() {
+	}
+
+	/**
+	 * sets the positions of the state to the original ones, fitted into the area
+	 *
+	 * @param state
+	 *            state of the graph, created from the nodes
+	 * @param width
+	 *            width of the area
+	 * @param height
+	 *            height of the area
+	 * @return false if a node has no original position, the positions of the state aren't changed then
+	 */
+	public static boolean initialize(FRLayoutState state, double width, double height) {
+		int nodeCount = state.nodeCount;
+		if (state.nodes == null || nodeCount == 0)
+			return false;
+
+		int[] layoutIndices = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			IFRLayoutNode node = state.nodes[i];
+			if (Double.isNaN(node.getOriginalCenterX()) || Double.isNaN(node.getOriginalCenterY()))
+				return false;
+			layoutIndices[i] = node.getOriginalLayoutIndex();
+		}
+
+		/**
+		 * the indices may have gaps (e.g. removed pathways) -> the groups are numbered consecutively
+		 */
+		int[] distinctIndices = Arrays.copyOf(layoutIndices, nodeCount);
+		Arrays.sort(distinctIndices);
+		int groupCount = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			if (i == 0 || distinctIndices[i] != distinctIndices[i - 1])
+				distinctIndices[groupCount++] = distinctIndices[i];
+		}
+
+		int[] groups = new int[nodeCount];
+		double[] minX = new double[groupCount];
+		double[] minY = new double[groupCount];
+		double[] maxX = new double[groupCount];
+		double[] maxY = new double[groupCount];
+		Arrays.fill(minX, Double.POSITIVE_INFINITY);
+		Arrays.fill(minY, Double.POSITIVE_INFINITY);
+		Arrays.fill(maxX, Double.NEGATIVE_INFINITY);
+		Arrays.fill(maxY, Double.NEGATIVE_INFINITY);
+
+		for (int i = 0; i < nodeCount; i++) {
+			int group = Arrays.binarySearch(distinctIndices, 0, groupCount, layoutIndices[i]);
+			groups[i] = group;
+			double x = state.nodes[i].getOriginalCenterX();
+			double y = state.nodes[i].getOriginalCenterY();
+			minX[group] = Math.min(minX[group], x);
+			minY[group] = Math.min(minY[group], y);
+			maxX[group] = Math.max(maxX[group], x);
+			maxY[group] = Math.max(maxY[group], y);
+		}
+
+		/**
+		 * as many columns as needed for cells, which are about as wide as the area is high
+		 */
+		int columnCount = (int) Math.ceil(Math.sqrt(groupCount * width / Math.max(height, 1.0)));
+		columnCount = Math.max(1, Math.min(columnCount, groupCount));
+		int rowCount = (groupCount + columnCount - 1) / columnCount;
+		double cellWidth = width / columnCount;
+		double cellHeight = height / rowCount;
+		double usableWidth = cellWidth * (1.0 - 2.0 * CELL_MARGIN);
+		double usableHeight = cellHeight * (1.0 - 2.0 * CELL_MARGIN);
+
+		double[] scales = new double[groupCount];
+		double[] xOffsets = new double[groupCount];
+		double[] yOffsets = new double[groupCount];
+		for (int g = 0; g < groupCount; g++) {
+			double groupWidth = maxX[g] - minX[g];
+			double groupHeight = maxY[g] - minY[g];
+			double scale = Math.min(usableWidth / Math.max(groupWidth, 1.0), usableHeight / Math.max(groupHeight, 1.0));
+
+			double cellCenterX = (g % columnCount + 0.5) * cellWidth;
+			double cellCenterY = (g / columnCount + 0.5) * cellHeight;
+			scales[g] = scale;
+			xOffsets[g] = cellCenterX - (minX[g] + groupWidth / 2.0) * scale;
+			yOffsets[g] = cellCenterY - (minY[g] + groupHeight / 2.0) * scale;
+		}
+
+		for (int i = 0; i < nodeCount; i++) {
+			if (state.fixed[i])
+				continue;
+
+			int g = groups[i];
+			state.xPositions[i] = state.nodes[i].getOriginalCenterX() * scales[g] + xOffsets[g];
+			state.yPositions[i] = state.nodes[i].getOriginalCenterY() * scales[g] + yOffsets[g];
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,159 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Removes the overlaps of the node boxes ({@link IFRLayoutNode#getWidth()} &amp; {@link IFRLayoutNode#getHeight()})
+ * of a finished layout by a sweep line, which scans the boxes from left to right & pushes overlapping ones apart.
+ *
+ * The boxes are sorted by their left border. While sweeping, a list of the active boxes is kept, i.e. the boxes, whose
+ * right border lies behind the current left border. Only these are tested against the current box, so a pass costs
+ * O(n log n) for sorting plus the number of boxes overlapping in x, instead of testing all n² pairs. Two overlapping
+ * boxes are pushed apart along the axis of the smaller overlap, each by half of it - a fixed node isn't moved, the other
+ * one is pushed by the whole overlap instead.
+ *
+ * Pushing a box apart may create new overlaps, so passes are repeated until none is left or {@link #MAX_PASSES} are
+ * reached. Movable nodes are kept inside the area. A few overlaps are removed in a few passes, whereas very dense
+ * layouts (or boxes, which don't fit into the area) may keep some overlaps after the last pass.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class OverlapRemover {
+
+	/**
+	 * upper bound for the passes, in case the boxes don't fit into the area without overlaps
+	 */
+	private static final int MAX_PASSES = 100;
+
+	/**
+	 * boxes, which overlap less than this, count as separated - avoids passes, which only correct rounding errors
+	 */
+	private static final double OVERLAP_TOLERANCE = 1e-6;
+
+	private OverlapRemover() {
+	}
+
+	/**
+	 * moves the movable nodes of the state, until their boxes don't overlap anymore
+	 *
+	 * @param state
+	 *            state of the finished layout
+	 * @param width
+	 *            width of the area
+	 * @param height
+	 *            height of the area
+	 * @param gap
+	 *            minimal distance between two boxes
+	 * @return number of passes needed, 0 if no box overlapped
+	 */
+	public static int removeOverlaps(final FRLayoutState state, double width, double height, double gap) {
+		int nodeCount = state.nodeCount;
+		if (nodeCount < 2)
+			return 0;
+
+		state.updateMovableNodes();
+		if (state.movableNodeCount == 0)
+			return 0;
+
+		final double[] x = state.xPositions;
+		final double[] y = state.yPositions;
+		double[] halfWidths = new double[nodeCount];
+		double[] halfHeights = new double[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			halfWidths[i] = (state.widths[i] + gap) / 2.0;
+			halfHeights[i] = (state.heights[i] + gap) / 2.0;
+		}
+
+		final double[] leftBorders = new double[nodeCount];
+		Integer[] sortedNodes = new Integer[nodeCount];
+		int[] activeNodes = new int[nodeCount];
+
+		int pass = 0;
+		while (pass < MAX_PASSES) {
+			for (int i = 0; i < nodeCount; i++) {
+				leftBorders[i] = x[i] - halfWidths[i];
+				sortedNodes[i] = i;
+			}
+			Arrays.sort(sortedNodes, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer node1, Integer node2) {
+					int result = Double.compare(leftBorders[node1], leftBorders[node2]);
+					return (result != 0) ? result : node1.compareTo(node2);
+				}
+			});
+
+			int overlapCount = 0;
+			int activeNodeCount = 0;
+			for (int s = 0; s < nodeCount; s++) {
+				int i = sortedNodes[s];
+				double left = x[i] - halfWidths[i];
+
+				/**
+				 * removes the boxes, which end before the current one starts, & tests the others
+				 */
+				int keptNodeCount = 0;
+				for (int a = 0; a < activeNodeCount; a++) {
+					int j = activeNodes[a];
+					if (x[j] + halfWidths[j] <= left)
+						continue;
+					activeNodes[keptNodeCount++] = j;
+
+					if (pushApart(state, i, j, halfWidths, halfHeights))
+						overlapCount++;
+				}
+				activeNodeCount = keptNodeCount;
+				activeNodes[activeNodeCount++] = i;
+			}
+
+			pass++;
+			if (overlapCount == 0)
+				return pass - 1;
+
+			for (int m = 0; m < state.movableNodeCount; m++) {
+				int i = state.movableNodes[m];
+				x[i] = Math.min(Math.max(x[i], halfWidths[i]), Math.max(width - halfWidths[i], halfWidths[i]));
+				y[i] = Math.min(Math.max(y[i], halfHeights[i]), Math.max(height - halfHeights[i], halfHeights[i]));
+			}
+		}
+		return pass;
+	}
+
+	/**
+	 * pushes the boxes of the two nodes apart along the axis of the smaller overlap, if they overlap
+	 *
+	 * @return true if the boxes overlapped
+	 */
+	private static boolean pushApart(FRLayoutState state, int i, int j, double[] halfWidths, double[] halfHeights) {
+		boolean isIFixed = state.fixed[i];
+		boolean isJFixed = state.fixed[j];
+		if (isIFixed && isJFixed)
+			return false;
+
+		double[] x = state.xPositions;
+		double[] y = state.yPositions;
+		double xDistance = x[i] - x[j];
+		double yDistance = y[i] - y[j];
+		double xOverlap = halfWidths[i] + halfWidths[j] - Math.abs(xDistance);
+		double yOverlap = halfHeights[i] + halfHeights[j] - Math.abs(yDistance);
+		if (xOverlap <= OVERLAP_TOLERANCE || yOverlap <= OVERLAP_TOLERANCE)
+			return false;
+
+		/**
+		 * share of the push for node i - boxes at the same position are separated in the order of the sweep
+		 */
+		double iShare = isJFixed ? 1.0 : (isIFixed ? 0.0 : 0.5);
+		if (xOverlap <= yOverlap) {
+			double direction = (xDistance >= 0.0) ? 1.0 : -1.0;
+			x[i] += direction * xOverlap * iShare;
+			x[j] -= direction * xOverlap * (1.0 - iShare);
+		} else {
+			double direction = (yDistance >= 0.0) ? 1.0 : -1.0;
+			y[i] += direction * yOverlap * iShare;
+			y[j] -= direction * yOverlap * (1.0 - iShare);
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,325 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Places the nodes by Pivot-MDS (Brandes &amp; Pich: "Eigensolver Methods for Progressive Multidimensional Scaling of
+ * Large Data").
+ *
+ * Instead of the distances of all node pairs, only the distances to k pivot nodes are calculated, by a breadth first
+ * search over the edges from each pivot. The pivots are chosen one after the other, each one is the node farthest away
+ * from the already chosen ones, so they are spread over the whole graph. The squared distances form an n×k matrix C,
+ * which is double centered. The two dominant eigenvectors of the k×k matrix CᵀC (calculated by power iteration) give
+ * the coordinates of the nodes, i.e. C times the eigenvectors. The breadth first searches cost O(k·(n+m)), the rest
+ * O(k²·n) - with a small constant k, the whole graph is placed in linear time.
+ *
+ * Nodes of different components get the longest distance of the graph + 1, like in the
+ * {@link SGDStressLayoutEngine}. The result is scaled to the edge length of the Fruchterman &amp; Reingold layout &amp;
+ * shrunk to fit into the area, its wider axis is aligned with the wider side of the area. Fixed nodes keep their
+ * position.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class PivotMDS {
+
+	/**
+	 * maximal number of pivots
+	 */
+	private static final int MAX_PIVOT_COUNT = 50;
+
+	/**
+	 * smaller graphs aren't placed
+	 */
+	private static final int MIN_NODE_COUNT = 3;
+
+	private static final int MAX_POWER_ITERATIONS = 200;
+
+	/**
+	 * the power iteration stops, as soon as the eigenvector changed less than this in an iteration
+	 */
+	private static final double POWER_ITERATION_TOLERANCE = 1e-9;
+
+	/**
+	 * eigenvalues below this fraction of the trace of CᵀC count as 0, i.e. there is no structure to lay out
+	 */
+	private static final double MIN_EIGENVALUE_RATIO = 1e-12;
+
+	/**
+	 * the power iteration starts from a pseudo random vector, which is the same for every run
+	 */
+	private static final long START_VECTOR_SEED = 4711L;
+
+	private PivotMDS() {
+	}
+
+	/**
+	 * places the movable nodes of the state by Pivot-MDS
+	 *
+	 * @param state
+	 *            state of the graph, the positions are written into it
+	 * @param width
+	 *            width of the area
+	 * @param height
+	 *            height of the area
+	 * @return false if the graph is too small or has no structure to lay out - the positions aren't changed then
+	 */
+	public static boolean initialize(FRLayoutState state, double width, double height) {
+		int nodeCount = state.nodeCount;
+		if (nodeCount < MIN_NODE_COUNT || state.edgeCount == 0)
+			return false;
+
+		state.buildAdjacency();
+		int pivotCount = Math.min(MAX_PIVOT_COUNT, nodeCount);
+		double[][] columns = calcCenteredColumns(state, pivotCount);
+
+		/**
+		 * CᵀC is symmetric, so only its upper half is calculated
+		 */
+		double[][] product = new double[pivotCount][pivotCount];
+		double trace = 0.0;
+		for (int p = 0; p < pivotCount; p++) {
+			for (int q = p; q < pivotCount; q++) {
+				double sum = 0.0;
+				double[] pColumn = columns[p];
+				double[] qColumn = columns[q];
+				for (int i = 0; i < nodeCount; i++)
+					sum += pColumn[i] * qColumn[i];
+				product[p][q] = sum;
+				product[q][p] = sum;
+			}
+			trace += product[p][p];
+		}
+
+		Random random = new Random(START_VECTOR_SEED);
+		double[] firstVector = new double[pivotCount];
+		double firstValue = calcDominantEigenvector(product, null, firstVector, random);
+		double[] secondVector = new double[pivotCount];
+		calcDominantEigenvector(product, firstVector, secondVector, random);
+		if (firstValue <= MIN_EIGENVALUE_RATIO * trace)
+			return false;
+
+		/**
+		 * the first eigenvector spreads the nodes most, so it's used for the wider side of the area
+		 */
+		boolean isWide = width >= height;
+		double[] xVector = isWide ? firstVector : secondVector;
+		double[] yVector = isWide ? secondVector : firstVector;
+		double[] x = new double[nodeCount];
+		double[] y = new double[nodeCount];
+		for (int p = 0; p < pivotCount; p++) {
+			double[] column = columns[p];
+			double xWeight = xVector[p];
+			double yWeight = yVector[p];
+			for (int i = 0; i < nodeCount; i++) {
+				x[i] += column[i] * xWeight;
+				y[i] += column[i] * yWeight;
+			}
+		}
+
+		fitIntoArea(state, x, y, width, height);
+		return true;
+	}
+
+	/**
+	 * chooses the pivots &amp; calculates their distances to all nodes by breadth first searches
+	 *
+	 * @return the double centered squared distances - column p contains the values of pivot p for every node
+	 */
+	private static double[][] calcCenteredColumns(FRLayoutState state, int pivotCount) {
+		int nodeCount = state.nodeCount;
+		double[][] columns = new double[pivotCount][nodeCount];
+		int[] distances = new int[nodeCount];
+		int[] minDistances = new int[nodeCount];
+		int[] queue = new int[nodeCount];
+		Arrays.fill(minDistances, Integer.MAX_VALUE);
+
+		/**
+		 * the first pivot is the node with the most neighbours, the next ones are the nodes farthest away from the
+		 * chosen ones - unreachable nodes first, so every component gets a pivot, as long as there are enough
+		 */
+		int pivot = 0;
+		for (int i = 1; i < nodeCount; i++) {
+			if (state.adjacencyOffsets[i + 1] - state.adjacencyOffsets[i] > state.adjacencyOffsets[pivot + 1]
+					- state.adjacencyOffsets[pivot])
+				pivot = i;
+		}
+
+		int maxDistance = 0;
+		for (int p = 0; p < pivotCount; p++) {
+			Arrays.fill(distances, -1);
+			distances[pivot] = 0;
+			queue[0] = pivot;
+			int queueEnd = 1;
+
+			for (int q = 0; q < queueEnd; q++) {
+				int u = queue[q];
+				for (int a = state.adjacencyOffsets[u]; a < state.adjacencyOffsets[u + 1]; a++) {
+					int v = state.adjacentNodes[a];
+					if (distances[v] < 0) {
+						distances[v] = distances[u] + 1;
+						queue[queueEnd++] = v;
+					}
+				}
+			}
+
+			double[] column = columns[p];
+			int nextPivot = 0;
+			for (int i = 0; i < nodeCount; i++) {
+				int distance = distances[i];
+				column[i] = distance;
+				maxDistance = Math.max(maxDistance, distance);
+				if (distance >= 0)
+					minDistances[i] = Math.min(minDistances[i], distance);
+				if (minDistances[i] > minDistances[nextPivot])
+					nextPivot = i;
+			}
+			pivot = nextPivot;
+		}
+
+		/**
+		 * squares the distances &amp; centers the rows &amp; columns: c = -1/2 (d² - row mean - column mean + mean)
+		 */
+		double unconnectedDistance = maxDistance + 1;
+		double[] rowMeans = new double[nodeCount];
+		double[] columnMeans = new double[pivotCount];
+		double mean = 0.0;
+		for (int p = 0; p < pivotCount; p++) {
+			double[] column = columns[p];
+			for (int i = 0; i < nodeCount; i++) {
+				double distance = (column[i] < 0.0) ? unconnectedDistance : column[i];
+				column[i] = distance * distance;
+				rowMeans[i] += column[i] / pivotCount;
+				columnMeans[p] += column[i] / nodeCount;
+			}
+			mean += columnMeans[p] / pivotCount;
+		}
+
+		for (int p = 0; p < pivotCount; p++) {
+			double[] column = columns[p];
+			for (int i = 0; i < nodeCount; i++)
+				column[i] = -0.5 * (column[i] - rowMeans[i] - columnMeans[p] + mean);
+		}
+		return columns;
+	}
+
+	/**
+	 * calculates the eigenvector of the biggest eigenvalue of the symmetric matrix by power iteration
+	 *
+	 * @param matrix
+	 *            symmetric, positive semidefinite matrix
+	 * @param orthogonalVector
+	 *            normalized eigenvector, which is projected out in every iteration, so the next one is found - null
+	 *            for the dominant one
+	 * @param vector
+	 *            receives the normalized eigenvector
+	 * @return the eigenvalue
+	 */
+	private static double calcDominantEigenvector(double[][] matrix, double[] orthogonalVector, double[] vector,
+			Random random) {
+		int size = vector.length;
+		for (int p = 0; p < size; p++)
+			vector[p] = random.nextDouble() - 0.5;
+		orthogonalize(vector, orthogonalVector);
+		if (normalize(vector) == 0.0)
+			return 0.0;
+
+		double[] nextVector = new double[size];
+		double eigenvalue = 0.0;
+		for (int iteration = 0; iteration < MAX_POWER_ITERATIONS; iteration++) {
+			for (int p = 0; p < size; p++) {
+				double sum = 0.0;
+				double[] row = matrix[p];
+				for (int q = 0; q < size; q++)
+					sum += row[q] * vector[q];
+				nextVector[p] = sum;
+			}
+			orthogonalize(nextVector, orthogonalVector);
+			eigenvalue = normalize(nextVector);
+			if (eigenvalue == 0.0)
+				return 0.0;
+
+			double change = 0.0;
+			for (int p = 0; p < size; p++) {
+				change += Math.abs(nextVector[p] - vector[p]);
+				vector[p] = nextVector[p];
+			}
+			if (change < POWER_ITERATION_TOLERANCE)
+				break;
+		}
+		return eigenvalue;
+	}
+
+	/**
+	 * removes the component of the normalized vector from the given one
+	 */
+	private static void orthogonalize(double[] vector, double[] orthogonalVector) {
+		if (orthogonalVector == null)
+			return;
+
+		double dotProduct = 0.0;
+		for (int p = 0; p < vector.length; p++)
+			dotProduct += vector[p] * orthogonalVector[p];
+		for (int p = 0; p < vector.length; p++)
+			vector[p] -= dotProduct * orthogonalVector[p];
+	}
+
+	/**
+	 * @return the length of the vector before it was normalized
+	 */
+	private static double normalize(double[] vector) {
+		double length = 0.0;
+		for (double value : vector)
+			length += value * value;
+		length = Math.sqrt(length);
+		if (length == 0.0)
+			return 0.0;
+
+		for (int p = 0; p < vector.length; p++)
+			vector[p] /= length;
+		return length;
+	}
+
+	/**
+	 * scales the coordinates, so the mean edge is as long as an edge of the Fruchterman &amp; Reingold layout, shrinks
+	 * them to fit into the area &amp; centers them - only the positions of the movable nodes are set
+	 */
+	private static void fitIntoArea(FRLayoutState state, double[] x, double[] y, double width, double height) {
+		int nodeCount = state.nodeCount;
+		double border = width / 50.0;
+
+		double totalEdgeLength = 0.0;
+		for (int e = 0; e < state.edgeCount; e++) {
+			double xDistance = x[state.edgeSources[e]] - x[state.edgeTargets[e]];
+			double yDistance = y[state.edgeSources[e]] - y[state.edgeTargets[e]];
+			totalEdgeLength += Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+		}
+		double edgeLength = Math.sqrt(width * height / Math.max(state.getTotalMass(), 1.0));
+		double scale = (totalEdgeLength > 0.0) ? edgeLength * state.edgeCount / totalEdgeLength : 1.0;
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < nodeCount; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		scale = Math.min(scale, Math.min(Math.max(width - 2.0 * border, 0.0) / Math.max(maxX - minX, Double.MIN_VALUE),
+				Math.max(height - 2.0 * border, 0.0) / Math.max(maxY - minY, Double.MIN_VALUE)));
+		double layoutCenterX = (minX + maxX) / 2.0;
+		double layoutCenterY = (minY + maxY) / 2.0;
+		for (int i = 0; i < nodeCount; i++) {
+			if (state.fixed[i])
+				continue;
+
+			state.xPositions[i] = width / 2.0 + (x[i] - layoutCenterX) * scale;
+			state.yPositions[i] = height / 2.0 + (y[i] - layoutCenterY) * scale;
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+/**
+ * Fast layout by {@link PivotMDS}: the whole layout is calculated in a single iteration, which is linear in the size
+ * of the graph.
+ *
+ * The result only approximates the graph distances, so nodes may overlap &amp; the edges differ in length - it's meant
+ * for big graphs, for which a force directed layout takes too long. Graphs, which can't be placed by Pivot-MDS (e.g.
+ * without edges), keep their positions.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class PivotMDSLayoutEngine implements ILayoutEngine {
+
+	// state of the current run
+
+	private FRLayoutState state;
+	private double width;
+	private double height;
+	private int iteration;
+
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		this.state = state;
+		this.width = width;
+		this.height = height;
+		this.iteration = 0;
+
+		state.updateMovableNodes();
+	}
+
+	/**
+	 * Pivot-MDS doesn't use the start positions, so a refinement is a complete run
+	 */
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		start(state, width, height);
+	}
+
+	@Override
+	public void run() {
+		iterate();
+	}
+
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		PivotMDS.initialize(state, width, height);
+		iteration++;
+		return false;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return state == null || iteration > 0 || state.movableNodeCount == 0;
+	}
+
+	@Override
+	public int getIteration() {
+		return iteration;
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the last laid out position of every node by its {@link IFRLayoutNode#getLayoutKey()}, i.e. by the
+ * vertices it represents - independent of the node elements, which are created again, whenever pathways are added.
+ *
+ * A later layout of a graph with known nodes starts from their remembered positions, so the user's mental map is
+ * preserved & only a few iterations are needed. The positions are stored relative to the size of the area, so they
+ * still fit, if the area was resized in between. If more than the maximal number of nodes are remembered, the least
+ * recently laid out ones are forgotten.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+public final class PositionMemory {
+
+	private final int maxNodeCount;
+
+	/**
+	 * relative x &amp; y position by layout key - access ordered, so it iterates from the least to the most recently
+	 * laid out node
+	 */
+	private final LinkedHashMap<Long, double[]> positions;
+
+	/**
+	 * @param maxNodeCount
+	 *            maximal number of remembered nodes
+	 */
+	public PositionMemory(int maxNodeCount) {
+		this.maxNodeCount = maxNodeCount;
+		this.positions = new LinkedHashMap<Long, double[]>(16, 0.75f, true);
+	}
+
+	/**
+	 * @return number of nodes of the state, whose position is remembered
+	 */
+	public int countKnownNodes(FRLayoutState state) {
+		int knownNodeCount = 0;
+		for (int i = 0; i < state.nodeCount; i++) {
+			if (positions.containsKey(state.nodeKeys[i]))
+				knownNodeCount++;
+		}
+		return knownNodeCount;
+	}
+
+	/**
+	 * sets the positions of the known nodes of the state to their remembered ones
+	 *
+	 * @param state
+	 *            state of the graph, the positions are written into it
+	 * @param width
+	 *            width of the area
+	 * @param height
+	 *            height of the area
+	 * @return for every node, whether its position was remembered - fixed nodes keep their position, but count as
+	 *         known
+	 */
+	public boolean[] apply(FRLayoutState state, double width, double height) {
+		boolean[] isKnown = new boolean[state.nodeCount];
+
+		for (int i = 0; i < state.nodeCount; i++) {
+			double[] position = positions.get(state.nodeKeys[i]);
+			if (position == null)
+				continue;
+
+			isKnown[i] = true;
+			if (!state.fixed[i]) {
+				state.xPositions[i] = position[0] * width;
+				state.yPositions[i] = position[1] * height;
+			}
+		}
+		return isKnown;
+	}
+
+	/**
+	 * remembers the positions of all nodes of the (finished) layout
+	 *
+	 * @param state
+	 *            the laid out state
+	 * @param width
+	 *            width of the area
+	 * @param height
+	 *            height of the area
+	 */
+	public void put(FRLayoutState state, double width, double height) {
+		if (width <= 0.0 || height <= 0.0)
+			return;
+
+		for (int i = 0; i < state.nodeCount; i++)
+			positions.put(state.nodeKeys[i], new double[] { state.xPositions[i] / width, state.yPositions[i] / height });
+
+		for (Iterator<Map.Entry<Long, double[]>> iter = positions.entrySet().iterator(); positions.size() > maxNodeCount
+				&& iter.hasNext();) {
+			iter.next();
+			iter.remove();
+		}
+	}
+
+	public void clear() {
+		positions.clear();
+	}
+
+	/**
+	 * @return number of remembered nodes
+	 */
+	public int getNodeCount() {
+		return positions.size();
+	}
+
+}
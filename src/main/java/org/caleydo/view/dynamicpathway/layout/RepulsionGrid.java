@@ -0,0 +1,179 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid used for the grid variant of the Fruchterman &amp; Reingold layout: nodes only repulse nodes, which are
+ * closer than the cell size. So only the own &amp; the neighbouring cells have to be checked, which brings the
+ * repulsion step down to O(n) for evenly distributed nodes.
+ *
+ * The nodes are sorted into the cells by counting sort, the arrays are reused when the grid is rebuilt in the next
+ * iteration.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class RepulsionGrid {
+
+	/**
+	 * limits the memory, if the nodes are spread much wider than the cell size - the cells get bigger then
+	 */
+	private static final int MAX_CELLS_PER_AXIS = 512;
+
+	private double cellSize;
+	private double minX;
+	private double minY;
+	private int columnCount;
+	private int rowCount;
+
+	/**
+	 * the nodes of cell c are sortedNodes[cellStart[c]] to sortedNodes[cellStart[c + 1] - 1]
+	 */
+	private int[] cellStart = new int[1];
+	private int[] sortedNodes = new int[0];
+	private int[] nodeCells = new int[0];
+
+	/**
+	 * positions & masses the grid was built with
+	 */
+	private double[] xPositions;
+	private double[] yPositions;
+	private double[] masses;
+
+	/**
+	 * (re)builds the grid for the given positions
+	 *
+	 * @param xPositions
+	 *            x coordinates of the nodes' centers
+	 * @param yPositions
+	 *            y coordinates of the nodes' centers
+	 * @param masses
+	 *            masses of the nodes
+	 * @param nodeCount
+	 *            how many entries of the arrays are used
+	 * @param cutoffDistance
+	 *            nodes farther away than this distance don't repulse each other - used as (minimal) cell size
+	 */
+	public void build(double[] xPositions, double[] yPositions, double[] masses, int nodeCount, double cutoffDistance) {
+		this.xPositions = xPositions;
+		this.yPositions = yPositions;
+		this.masses = masses;
+
+		minX = Double.POSITIVE_INFINITY;
+		minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < nodeCount; i++) {
+			minX = Math.min(minX, xPositions[i]);
+			minY = Math.min(minY, yPositions[i]);
+			maxX = Math.max(maxX, xPositions[i]);
+			maxY = Math.max(maxY, yPositions[i]);
+		}
+
+		if (nodeCount == 0) {
+			minX = 0.0;
+			minY = 0.0;
+			maxX = 0.0;
+			maxY = 0.0;
+		}
+
+		double extent = Math.max(maxX - minX, maxY - minY);
+		cellSize = Math.max(cutoffDistance, extent / (MAX_CELLS_PER_AXIS - 1));
+		if (cellSize <= 0.0)
+			cellSize = 1.0;
+
+		columnCount = (int) ((maxX - minX) / cellSize) + 1;
+		rowCount = (int) ((maxY - minY) / cellSize) + 1;
+
+		int cellCount = columnCount * rowCount;
+		if (cellStart.length < cellCount + 1)
+			cellStart = new int[cellCount + 1];
+		else
+			Arrays.fill(cellStart, 0, cellCount + 1, 0);
+		if (sortedNodes.length < nodeCount) {
+			sortedNodes = new int[nodeCount];
+			nodeCells = new int[nodeCount];
+		}
+
+		for (int i = 0; i < nodeCount; i++) {
+			int cell = getRow(yPositions[i]) * columnCount + getColumn(xPositions[i]);
+			nodeCells[i] = cell;
+			cellStart[cell + 1]++;
+		}
+		for (int c = 0; c < cellCount; c++)
+			cellStart[c + 1] += cellStart[c];
+
+		/**
+		 * cellStart[c] is used as insert position & is shifted back afterwards
+		 */
+		for (int i = 0; i < nodeCount; i++)
+			sortedNodes[cellStart[nodeCells[i]]++] = i;
+		for (int c = cellCount; c > 0; c--)
+			cellStart[c] = cellStart[c - 1];
+		cellStart[0] = 0;
+	}
+
+	/**
+	 * calculates the repulsive force of all nodes closer than the cutoff distance on the given node, using the same
+	 * equation as {@link FRLayoutEngine}: globalEdgeLength² / (distance * repulsionMultiplier)
+	 *
+	 * @param body
+	 *            index of the node, which's displacement is calculated
+	 * @param squaredEdgeLength
+	 *            the squared global edge length
+	 * @param cutoffDistance
+	 *            nodes farther away don't repulse, has to be at most the cell size the grid was built with
+	 * @param repulsionMultiplier
+	 *            the repulsion multiplier, ignored if isRepulsionMultiplierSetToDistance is true
+	 * @param isRepulsionMultiplierSetToDistance
+	 *            if true the repulsion multiplier is set to the distance of the nodes
+	 * @param force
+	 *            array of size 2, the x &amp; y displacement are written into it
+	 */
+	public void calcRepulsiveForce(int body, double squaredEdgeLength, double cutoffDistance,
+			double repulsionMultiplier, boolean isRepulsionMultiplierSetToDistance, double[] force) {
+		double xForce = 0.0;
+		double yForce = 0.0;
+
+		double xPosition = xPositions[body];
+		double yPosition = yPositions[body];
+		int column = getColumn(xPosition);
+		int row = getRow(yPosition);
+
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rowCount - 1); r++) {
+			for (int c = Math.max(column - 1, 0); c <= Math.min(column + 1, columnCount - 1); c++) {
+				int cell = r * columnCount + c;
+
+				for (int s = cellStart[cell]; s < cellStart[cell + 1]; s++) {
+					int j = sortedNodes[s];
+					if (j == body)
+						continue;
+
+					double xDistance = xPosition - xPositions[j];
+					double yDistance = yPosition - yPositions[j];
+					double distance = Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+
+					if (distance > 0.0 && distance < cutoffDistance) {
+						double multiplier = isRepulsionMultiplierSetToDistance ? distance : repulsionMultiplier;
+						double repulsiveForce = masses[j] * squaredEdgeLength / (distance * multiplier);
+
+						xForce += (xDistance / distance) * repulsiveForce;
+						yForce += (yDistance / distance) * repulsiveForce;
+					}
+				}
+			}
+		}
+
+		force[0] = xForce;
+		force[1] = yForce;
+	}
+
+	private int getColumn(double x) {
+		return Math.min((int) ((x - minX) / cellSize), columnCount - 1);
+	}
+
+	private int getRow(double y) {
+		return Math.min((int) ((y - minY) / cellSize), rowCount - 1);
+	}
+
+}
@@ -0,0 +1,365 @@
+package org.caleydo.view.dynamicpathway.layout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Stress majorization by stochastic gradient descent (Zheng, Pawar &amp; Goodman: "Graph Drawing by Stochastic
+ * Gradient Descent").
+ *
+ * The ideal distance of two nodes is the length of the shortest path between them (calculated by a breadth first
+ * search from every node) times the edge length. An iteration visits all node pairs in random order & moves both nodes
+ * of a pair towards their ideal distance. The step size decreases exponentially over the iterations, pairs which are
+ * close in the graph get bigger steps than distant ones.
+ *
+ * Nodes of different components get the longest distance of the graph + 1, so the components don't overlap. Fixed
+ * nodes aren't moved, the other node of the pair takes the whole step instead. Nodes with an anchor are moved towards
+ * it in every iteration. After each iteration, the layout is shrunk to fit into the area.
+ *
+ * The distances of all pairs are stored, so the memory grows quadratically with the number of nodes. Graphs with more
+ * than {@link #MAX_NODE_COUNT} nodes are placed by {@link PivotMDS} instead, in a single iteration.
+ *
+ * @author Christiane Schwarzl
+ *
+ */
+final class SGDStressLayoutEngine implements ILayoutEngine {
+
+	private static final int MAX_ITERATIONS = 30;
+
+	/**
+	 * bigger graphs are placed by Pivot-MDS - the pairs of this many nodes take about 50 MB
+	 */
+	private static final int MAX_NODE_COUNT = 4000;
+
+	/**
+	 * a refinement of an initial layout runs MAX_ITERATIONS / REFINEMENT_ITERATION_DIVISOR iterations
+	 */
+	private static final int REFINEMENT_ITERATION_DIVISOR = 3;
+
+	/**
+	 * step size of the last iteration for the pairs with the biggest weight (i.e. neighbours)
+	 */
+	private static final double MIN_STEP_SIZE = 0.1;
+
+	/**
+	 * the run stops, as soon as no node moved further than this fraction of the edge length in an iteration
+	 */
+	private static final double CONVERGENCE_TOLERANCE = 0.03;
+
+	private final boolean isRandomSeedSet;
+	private final long randomSeed;
+	private final double anchorWeight;
+
+	// state of the current run
+
+	private FRLayoutState state;
+	private double width;
+	private double height;
+	private double border;
+	private int iteration;
+	private int runIterations;
+	private boolean isConverged;
+	/**
+	 * true if the graph is too big for storing all pairs &amp; is placed by Pivot-MDS instead
+	 */
+	private boolean isPivotMDSFallback;
+	/**
+	 * used for the order of the pairs & for separating nodes at the same position
+	 */
+	private Random random;
+
+	/**
+	 * length of an edge in the layout
+	 */
+	private double edgeLength;
+
+	/**
+	 * pair p consists of the nodes pairs[p] / nodeCount &amp; pairs[p] % nodeCount, their graph distance is
+	 * pairDistances[p]
+	 */
+	private int[] pairs;
+	private short[] pairDistances;
+
+	private double maxStepSize;
+	private double stepSizeDecay;
+
+	/**
+	 * @param builder
+	 *            contains the settings of the layout
+	 */
+	public SGDStressLayoutEngine(GLFruchtermanReingoldLayoutBuilder builder) {
+		this.isRandomSeedSet = builder.isRandomSeedSet;
+		this.randomSeed = builder.randomSeed;
+		this.anchorWeight = builder.anchorWeight;
+	}
+
+	@Override
+	public void start(FRLayoutState state, double width, double height) {
+		this.state = state;
+		this.width = width;
+		this.height = height;
+		this.border = width / 50.0;
+		this.iteration = 0;
+		this.runIterations = MAX_ITERATIONS;
+		this.isConverged = false;
+		this.random = isRandomSeedSet ? new Random(randomSeed) : new Random();
+		this.isPivotMDSFallback = state.nodeCount > MAX_NODE_COUNT;
+
+		state.updateMovableNodes();
+		if (isPivotMDSFallback) {
+			runIterations = 1;
+			return;
+		}
+		int maxDistance = calcPairDistances();
+
+		/**
+		 * same edge length as in the Fruchterman & Reingold layout - it shrinks, if the layout doesn't fit into the
+		 * area
+		 */
+		edgeLength = Math.sqrt(width * height / Math.max(state.getTotalMass(), 1.0));
+
+		/**
+		 * the weight of a pair is 1 / distance², the step sizes are chosen, so that the first iteration moves all
+		 * pairs fully to their ideal distance & the last one only moves neighbours by MIN_STEP_SIZE
+		 */
+		maxStepSize = Math.max((double) maxDistance * maxDistance, 1.0);
+		stepSizeDecay = Math.log(maxStepSize / MIN_STEP_SIZE) / Math.max(runIterations - 1, 1);
+	}
+
+	/**
+	 * starts a shorter run, which skips the big steps at the beginning: a pair is moved at most to its ideal distance
+	 */
+	@Override
+	public void startRefinement(FRLayoutState state, double width, double height) {
+		start(state, width, height);
+		if (isPivotMDSFallback)
+			return;
+
+		runIterations = Math.max(MAX_ITERATIONS / REFINEMENT_ITERATION_DIVISOR, 1);
+		maxStepSize = 1.0;
+		stepSizeDecay = Math.log(maxStepSize / MIN_STEP_SIZE) / Math.max(runIterations - 1, 1);
+	}
+
+	@Override
+	public void run() {
+		while (iterate()) {
+			// nothing to do in between
+		}
+	}
+
+	@Override
+	public boolean iterate() {
+		if (isFinished())
+			return false;
+
+		if (isPivotMDSFallback) {
+			PivotMDS.initialize(state, width, height);
+			iteration++;
+			return false;
+		}
+
+		double stepSize = maxStepSize * Math.exp(-stepSizeDecay * iteration);
+		shufflePairs();
+
+		double[] x = state.xPositions;
+		double[] y = state.yPositions;
+		int nodeCount = state.nodeCount;
+		double maxMovement = 0.0;
+
+		for (int p = 0; p < pairs.length; p++) {
+			int i = pairs[p] / nodeCount;
+			int j = pairs[p] % nodeCount;
+			boolean isIFixed = state.fixed[i];
+			boolean isJFixed = state.fixed[j];
+			if (isIFixed && isJFixed)
+				continue;
+
+			double graphDistance = pairDistances[p];
+			double weight = 1.0 / (graphDistance * graphDistance);
+			double mu = Math.min(weight * stepSize, 1.0);
+
+			double xDistance = x[i] - x[j];
+			double yDistance = y[i] - y[j];
+			double distance = Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+			if (distance == 0.0) {
+				double angle = random.nextDouble() * 2.0 * Math.PI;
+				xDistance = Math.cos(angle);
+				yDistance = Math.sin(angle);
+				distance = 1.0;
+			}
+
+			/**
+			 * half of the correction per node - the whole one, if the other node is fixed
+			 */
+			double correction = mu * (distance - graphDistance * edgeLength) / (2.0 * distance);
+			if (isIFixed || isJFixed)
+				correction *= 2.0;
+			double xMovement = correction * xDistance;
+			double yMovement = correction * yDistance;
+
+			if (!isIFixed) {
+				x[i] -= xMovement;
+				y[i] -= yMovement;
+			}
+			if (!isJFixed) {
+				x[j] += xMovement;
+				y[j] += yMovement;
+			}
+			maxMovement = Math.max(maxMovement, Math.abs(xMovement) + Math.abs(yMovement));
+		}
+
+		if (state.hasAnchors)
+			maxMovement = Math.max(maxMovement, moveTowardsAnchors(stepSize));
+
+		iteration++;
+		isConverged = maxMovement < CONVERGENCE_TOLERANCE * edgeLength;
+
+		fitIntoArea();
+
+		return !isFinished();
+	}
+
+	/**
+	 * moves the movable nodes towards their anchors, like the node of a pair with weight anchorWeight &amp; an ideal
+	 * distance of 0
+	 *
+	 * @return the longest movement
+	 */
+	private double moveTowardsAnchors(double stepSize) {
+		double mu = Math.min(anchorWeight * stepSize, 1.0);
+		double maxMovement = 0.0;
+
+		for (int m = 0; m < state.movableNodeCount; m++) {
+			int i = state.movableNodes[m];
+			if (Double.isNaN(state.xAnchors[i]))
+				continue;
+
+			double xMovement = mu * (state.xAnchors[i] - state.xPositions[i]);
+			double yMovement = mu * (state.yAnchors[i] - state.yPositions[i]);
+			state.xPositions[i] += xMovement;
+			state.yPositions[i] += yMovement;
+			maxMovement = Math.max(maxMovement, Math.abs(xMovement) + Math.abs(yMovement));
+		}
+		return maxMovement;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return state == null || isConverged || iteration >= runIterations || state.movableNodeCount == 0;
+	}
+
+	@Override
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * creates the list of all node pairs & their distances by a breadth first search from every node
+	 *
+	 * @return the longest distance in the graph, which is also used for the pairs of different components
+	 */
+	private int calcPairDistances() {
+		state.buildAdjacency();
+
+		int nodeCount = state.nodeCount;
+		/**
+		 * fits into an int, as the node count is at most MAX_NODE_COUNT - so does the pair encoding below
+		 */
+		int pairCount = (int) ((long) nodeCount * (nodeCount - 1) / 2);
+		pairs = new int[pairCount];
+		pairDistances = new short[pairCount];
+
+		short[] distances = new short[nodeCount];
+		int[] queue = new int[nodeCount];
+		int maxDistance = 0;
+		int p = 0;
+
+		for (int source = 0; source < nodeCount; source++) {
+			Arrays.fill(distances, (short) -1);
+			distances[source] = 0;
+			queue[0] = source;
+			int queueEnd = 1;
+
+			for (int q = 0; q < queueEnd; q++) {
+				int u = queue[q];
+				for (int a = state.adjacencyOffsets[u]; a < state.adjacencyOffsets[u + 1]; a++) {
+					int v = state.adjacentNodes[a];
+					if (distances[v] < 0) {
+						distances[v] = (short) (distances[u] + 1);
+						queue[queueEnd++] = v;
+					}
+				}
+			}
+
+			for (int target = source + 1; target < nodeCount; target++) {
+				pairs[p] = source * nodeCount + target;
+				pairDistances[p] = distances[target];
+				maxDistance = Math.max(maxDistance, distances[target]);
+				p++;
+			}
+		}
+
+		int unconnectedDistance = maxDistance + 1;
+		boolean isGraphUnconnected = false;
+		for (p = 0; p < pairCount; p++) {
+			if (pairDistances[p] < 0) {
+				pairDistances[p] = (short) unconnectedDistance;
+				isGraphUnconnected = true;
+			}
+		}
+
+		return isGraphUnconnected ? unconnectedDistance : maxDistance;
+	}
+
+	private void shufflePairs() {
+		for (int p = pairs.length - 1; p > 0; p--) {
+			int q = random.nextInt(p + 1);
+
+			int swapPair = pairs[p];
+			pairs[p] = pairs[q];
+			pairs[q] = swapPair;
+
+			short swapDistance = pairDistances[p];
+			pairDistances[p] = pairDistances[q];
+			pairDistances[q] = swapDistance;
+		}
+	}
+
+	/**
+	 * shrinks the layout around the area's center, if it got bigger than the area - the edge length is shrunk by the
+	 * same factor, so the stress of the layout doesn't change. If there are fixed nodes or anchors, the layout can't be
+	 * scaled & the nodes, which left the area, are moved back to its border instead.
+	 */
+	private void fitIntoArea() {
+		if (state.movableNodeCount == state.nodeCount && !state.hasAnchors) {
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < state.nodeCount; i++) {
+				minX = Math.min(minX, state.xPositions[i]);
+				minY = Math.min(minY, state.yPositions[i]);
+				maxX = Math.max(maxX, state.xPositions[i]);
+				maxY = Math.max(maxY, state.yPositions[i]);
+			}
+
+			double scale = Math.min(1.0, Math.min((width - 2.0 * border) / Math.max(maxX - minX, 1.0),
+					(height - 2.0 * border) / Math.max(maxY - minY, 1.0)));
+			double layoutCenterX = (minX + maxX) / 2.0;
+			double layoutCenterY = (minY + maxY) / 2.0;
+			for (int i = 0; i < state.nodeCount; i++) {
+				state.xPositions[i] = width / 2.0 + (state.xPositions[i] - layoutCenterX) * scale;
+				state.yPositions[i] = height / 2.0 + (state.yPositions[i] - layoutCenterY) * scale;
+			}
+			edgeLength *= scale;
+			return;
+		}
+
+		for (int m = 0; m < state.movableNodeCount; m++) {
+			int i = state.movableNodes[m];
+			state.xPositions[i] = Math.min(Math.max(state.xPositions[i], border), width - border);
+			state.yPositions[i] = Math.min(Math.max(state.yPositions[i], border), height - border);
+		}
+	}
+
+}
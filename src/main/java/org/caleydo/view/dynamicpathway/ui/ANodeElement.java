@@ -3,6 +3,7 @@ package org.caleydo.view.dynamicpathway.ui;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -20,6 +21,8 @@ import org.caleydo.core.view.contextmenu.GenericContextMenuItem;
 import org.caleydo.core.view.opengl.layout2.GLElementContainer;
 import org.caleydo.core.view.opengl.layout2.GLGraphics;
 import org.caleydo.core.view.opengl.layout2.IGLElementContext;
+import org.caleydo.core.view.opengl.picking.IPickingListener;
+import org.caleydo.core.view.opengl.picking.Pick;
 import org.caleydo.datadomain.pathway.graph.PathwayGraph;
 import org.caleydo.datadomain.pathway.graph.item.vertex.EPathwayVertexType;
 import org.caleydo.datadomain.pathway.graph.item.vertex.PathwayVertex;
@@ -74,6 +77,23 @@ public abstract class ANodeElement extends GLElementContainer implements IFRLayo
 	protected double centerY;
 	protected Coordinates coords;
 
+	/**
+	 * center of the node in the KEGG pathway, used as initial layout
+	 */
+	protected double originalCenterX;
+	protected double originalCenterY;
+
+	/**
+	 * if true, the layout doesn't move the node (e.g. the focus node)
+	 */
+	protected boolean isPinned = false;
+
+	/**
+	 * point the layout pulls the node towards - NaN if it has none
+	 */
+	protected double anchorX = Double.NaN;
+	protected double anchorY = Double.NaN;
+
 	protected String label;
 
 	protected DynamicPathwaysCanvas parentGraph;
@@ -118,6 +138,8 @@ public abstract class ANodeElement extends GLElementContainer implements IFRLayo
 			this.centerX = this.vertexRep.getLowerLeftCornerX() + this.height / 2.0f;
 			this.centerY = this.vertexRep.getLowerLeftCornerY() + this.width / 2.0f;
 		}
+		this.originalCenterX = this.centerX;
+		this.originalCenterY = this.centerY;
 
 		focusNodeMenu = new GenericContextMenuItem("Choose as focus node", focusNodeEvent);
 		filterPathwayMenu = new GenericContextMenuItem("Filter pathway list by these node",
@@ -154,6 +176,25 @@ public abstract class ANodeElement extends GLElementContainer implements IFRLayo
 		return this.centerY;
 	}
 
+	/**
+	 * @return x coordinate of the node's center, where it is currently drawn - differs from {@link #getCenterX()},
+	 *         while the container animates the node to its new position
+	 */
+	public double getAnimatedCenterX() {
+		if (getBounds().get(2) <= 0.0f)
+			return centerX;
+		return getBounds().get(0) + width / 2.0;
+	}
+
+	/**
+	 * @return y coordinate of the node's center, where it is currently drawn
+	 */
+	public double getAnimatedCenterY() {
+		if (getBounds().get(3) <= 0.0f)
+			return centerY;
+		return getBounds().get(1) + height / 2.0;
+	}
+
 	public Coordinates getCoords() {
 		return coords;
 	}
@@ -185,10 +226,103 @@ public abstract class ANodeElement extends GLElementContainer implements IFRLayo
 		return null;
 	}
 
+	/**
+	 * like {@link #getIntersectionPointWithNodeBound(Line2D)}, but with the bounds at the position, where the node is
+	 * currently drawn
+	 * 
+	 * @param intersectingLine
+	 *            line in the coordinates of the canvas
+	 * @return the intersection point or null, if the line doesn't intersect the bounds
+	 */
+	public Point2D.Double getIntersectionPointWithAnimatedNodeBound(Line2D intersectingLine) {
+		double xOffset = centerX - getAnimatedCenterX();
+		double yOffset = centerY - getAnimatedCenterY();
+
+		Line2D movedLine = new Line2D.Double(intersectingLine.getX1() + xOffset, intersectingLine.getY1() + yOffset,
+				intersectingLine.getX2() + xOffset, intersectingLine.getY2() + yOffset);
+		Point2D.Double intersectionPoint = getIntersectionPointWithNodeBound(movedLine);
+		if (intersectionPoint != null)
+			intersectionPoint.setLocation(intersectionPoint.getX() - xOffset, intersectionPoint.getY() - yOffset);
+		return intersectionPoint;
+	}
+
 	public String getLabel() {
 		return label;
 	}
 
+	/**
+	 * the key is built from the IDs of the node's vertex rep & vertices, so it stays the same, when the node is
+	 * created again - duplicate vertex reps of the same vertices get different keys, so they aren't placed on the same
+	 * remembered position
+	 */
+	@Override
+	public long getLayoutKey() {
+		PathwayVertex[] vertexArray = vertices.toArray(new PathwayVertex[0]);
+		int[] vertexIDs = new int[vertexArray.length];
+		for (int i = 0; i < vertexArray.length; i++)
+			vertexIDs[i] = vertexArray[i].getID();
+		Arrays.sort(vertexIDs);
+
+		long layoutKey = 17L * 31L + vertexRep.getID();
+		for (int vertexID : vertexIDs)
+			layoutKey = layoutKey * 31L + vertexID;
+		return layoutKey;
+	}
+
+	@Override
+	public double getOriginalCenterX() {
+		return originalCenterX;
+	}
+
+	@Override
+	public double getOriginalCenterY() {
+		return originalCenterY;
+	}
+
+	@Override
+	public int getOriginalLayoutIndex() {
+		return parentGraph.getOriginalLayoutIndex(representedPathways);
+	}
+
+	@Override
+	public boolean isPinned() {
+		return isPinned;
+	}
+
+	/**
+	 * @param isPinned
+	 *            if true, the layout keeps the node at its current position
+	 */
+	public void setPinned(boolean isPinned) {
+		this.isPinned = isPinned;
+	}
+
+	@Override
+	public double getAnchorX() {
+		return anchorX;
+	}
+
+	@Override
+	public double getAnchorY() {
+		return anchorY;
+	}
+
+	/**
+	 * the layout pulls the node towards the given point, but it can still move
+	 * 
+	 * @param anchorX
+	 * @param anchorY
+	 */
+	public void setAnchor(double anchorX, double anchorY) {
+		this.anchorX = anchorX;
+		this.anchorY = anchorY;
+	}
+
+	public void removeAnchor() {
+		this.anchorX = Double.NaN;
+		this.anchorY = Double.NaN;
+	}
+
 	public List<PathwayGraph> getPathways() {
 		List<PathwayGraph> pathways = new ArrayList<PathwayGraph>(this.representedPathways);
 		return pathways;
@@ -369,6 +503,31 @@ public abstract class ANodeElement extends GLElementContainer implements IFRLayo
 				return builder.toString();
 			}
 		}));
+
+		/**
+		 * dragging the node moves it & lets the layout's live simulation move the nodes around it
+		 */
+		this.onPick(new IPickingListener() {
+			@Override
+			public void pick(Pick pick) {
+				switch (pick.getPickingMode()) {
+				case DRAG_DETECTED:
+					if (parentGraph.startNodeDrag(ANodeElement.this))
+						pick.setDoDragging(true);
+					break;
+				case DRAGGED:
+					if (pick.isDoDragging())
+						parentGraph.dragNode(ANodeElement.this, pick.getDx(), pick.getDy());
+					break;
+				case MOUSE_RELEASED:
+					if (pick.isDoDragging())
+						parentGraph.endNodeDrag(ANodeElement.this);
+					break;
+				default:
+					break;
+				}
+			}
+		});
 	}
 
 
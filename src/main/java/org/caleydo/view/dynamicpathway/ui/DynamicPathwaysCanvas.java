@@ -52,6 +52,7 @@ import org.caleydo.datadomain.pathway.graph.item.vertex.PathwayVertexRep;
 import org.caleydo.view.dynamicpathway.internal.DynamicPathwayView;
 import org.caleydo.view.dynamicpathway.internal.NodeMergingException;
 import org.caleydo.view.dynamicpathway.layout.DynamicPathwayGraph;
+import org.caleydo.view.dynamicpathway.layout.ELayoutAlgorithm;
 import org.caleydo.view.dynamicpathway.layout.GLFruchtermanReingoldLayout;
 import org.caleydo.view.dynamicpathway.layout.IFRLayoutEdge;
 import org.caleydo.view.dynamicpathway.layout.IFRLayoutGraph;
@@ -80,6 +81,15 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 	public static final int DEFAULT_ADD_PATHWAY_DURATION = 1000;
 	private static final Duration DEFAULT_IN_TRANSITION_DURATION = new Duration(DEFAULT_ADD_PATHWAY_DURATION);
 	private static final int DEFAULT_REMOVE_PATHWAY_DURATION = 200;
+	/**
+	 * while a node is dragged, the nodes follow the layout's live simulation almost immediately
+	 */
+	private static final int DRAG_NODE_DURATION = 30;
+
+	/**
+	 * node, whose drag was started by {@link #startNodeDrag(ANodeElement)} - null if no node is dragged
+	 */
+	private ANodeElement draggedNode;
 
 	private boolean displayOnlyVerticesWithEdges = true;
 	private boolean removeDuplicateVertices = true;
@@ -96,6 +106,11 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 	private Set<ANodeElement> nodeSet;
 	private Set<EdgeElement> edgeSet;
 
+	/**
+	 * increased, whenever a node or an edge is added or removed - see {@link #getTopologyVersion()}
+	 */
+	private long topologyVersion = 0L;
+
 	/**
 	 * the bubble set
 	 */
@@ -146,6 +161,11 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 
 	private TextureRenderer textureRenderer = null;
 
+	/**
+	 * layout of the graph, its algorithm can be changed at runtime
+	 */
+	private final GLFruchtermanReingoldLayout graphLayout;
+
 	public DynamicPathwaysCanvas(GLFruchtermanReingoldLayout layout, DynamicPathwayView view) {
 
 		this.pathway = new DynamicPathwayGraph();
@@ -169,6 +189,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		this.bubbleSetPathways = new HashSet<PathwayGraph>();
 		this.nextColorIndex = 0;
 
+		this.graphLayout = layout;
 		setLayout(layout);
 
 		// Pathways animation setting
@@ -176,6 +197,10 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		IInOutInitializer GROW = new InOutInitializerBase(OTHER, OTHER, ZERO, ZERO);
 		setDefaultInTransition(new InOutTransitions.InOutTransitionBase(GROW, MoveTransitions.GROW_LINEAR));
 		setDefaultOutTransition(new InOutTransitions.InOutTransitionBase(GROW, MoveTransitions.GROW_LINEAR));
+		/**
+		 * the layout sets the bounds once per run, the nodes are moved linearly from their old to their new position
+		 */
+		setDefaultMoveTransition(MOVE_LINEAR);
 
 		setUpBubbleSet();
 	}
@@ -301,6 +326,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		// clear all sets -> might be reset again
 		nodeSet.clear();
 		edgeSet.clear();
+		topologyVersion++;
 		vrepToGroupNodeMap.clear();
 		uniqueVertexMap.clear();
 
@@ -375,6 +401,45 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		return pathway.getFocusPathway();
 	}
 
+	/**
+	 * the displayed graph depends on the vertex environment size & the duplicate and zero degree vertices settings
+	 */
+	@Override
+	public long getLayoutSettingsHash() {
+		long hash = view.getNodeEnvironmentSize();
+		hash = hash * 31L + (displayOnlyVerticesWithEdges ? 1L : 0L);
+		hash = hash * 31L + (removeDuplicateVertices ? 1L : 0L);
+		hash = hash * 31L + (focusGraphWithDuplicateVertices ? 1L : 0L);
+		return hash;
+	}
+
+	@Override
+	public long getTopologyVersion() {
+		return topologyVersion;
+	}
+
+	/**
+	 * the KEGG layouts of the focus & context pathways are placed next to each other, if the layout is initialized
+	 * with them
+	 * 
+	 * @param pathways
+	 *            pathways a node belongs to
+	 * @return 0 if one of the pathways is the focus pathway, otherwise 1 + the index of the first context pathway, that
+	 *         is contained
+	 */
+	public int getOriginalLayoutIndex(Set<PathwayGraph> pathways) {
+		PathwayGraph focusPathway = pathway.getFocusPathway();
+		if (focusPathway != null && pathways.contains(focusPathway))
+			return 0;
+
+		List<PathwayGraph> contextPathways = pathway.getContextPathways();
+		for (int i = 0; i < contextPathways.size(); i++) {
+			if (pathways.contains(contextPathways.get(i)))
+				return i + 1;
+		}
+		return 0;
+	}
+
 	@Override
 	public Vec2f getMinSize() {
 		return new Vec2f(100, 100);
@@ -522,6 +587,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 	public void removeFocusNode() {
 		if (focusNode != null) {
 			focusNode.setNodeState(ENodeState.DEFAULT);
+			focusNode.setPinned(false);
 			focusNode = null;
 		}
 	}
@@ -564,6 +630,76 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		this.displayOnlyVerticesWithEdges = displayOnlyVerticesWithEdges;
 	}
 
+	/**
+	 * lays out the displayed graph again, using the given algorithm
+	 * 
+	 * @param layoutAlgorithm
+	 *            the algorithm used from now on
+	 */
+	public void setLayoutAlgorithm(ELayoutAlgorithm layoutAlgorithm) {
+		graphLayout.setLayoutAlgorithm(layoutAlgorithm);
+		relayout();
+	}
+
+	/**
+	 * starts dragging the node, if the layout's live simulation is enabled: the node follows the mouse & the nodes
+	 * around it are moved by the layout
+	 * 
+	 * @param node
+	 *            the dragged node
+	 * @return true if the node is dragged, false if the layout refused the drag
+	 */
+	public boolean startNodeDrag(ANodeElement node) {
+		if (!graphLayout.startNodeDrag(node))
+			return false;
+
+		draggedNode = node;
+		setDefaultDuration(DRAG_NODE_DURATION);
+		relayout();
+		return true;
+	}
+
+	/**
+	 * @param node
+	 *            the dragged node
+	 * @param dx
+	 *            movement of the mouse in x direction since the last call
+	 * @param dy
+	 *            movement of the mouse in y direction since the last call
+	 */
+	public void dragNode(ANodeElement node, float dx, float dy) {
+		graphLayout.dragNode(node, dx, dy);
+		relayout();
+	}
+
+	/**
+	 * releases the dragged node, the nodes around it settle in the next frames
+	 * 
+	 * @param node
+	 *            the dragged node
+	 */
+	public void endNodeDrag(ANodeElement node) {
+		if (node != draggedNode)
+			return;
+
+		draggedNode = null;
+		graphLayout.endNodeDrag(node);
+		setDefaultDuration(DEFAULT_ADD_PATHWAY_DURATION);
+		relayout();
+	}
+
+	/**
+	 * changes the time a whole layout should take at most - the automatic layout chooses its algorithm by it, so the
+	 * displayed graph is laid out again
+	 *
+	 * @param layoutTimeBudgetMs
+	 *            time budget in milliseconds
+	 */
+	public void setLayoutTimeBudget(int layoutTimeBudgetMs) {
+		graphLayout.setLayoutTimeBudget(layoutTimeBudgetMs);
+		relayout();
+	}
+
 	/**
 	 * if a node (wrapper for PathwayVertexRep) is selected via the filtering command, it is highlighted and the pathway
 	 * list on the left is filtered by pathways, which contain this element
@@ -581,6 +717,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		if (focusNode == null) {
 			focusNode = newFilteringNode;
 			focusNode.setNodeState(ENodeState.FOCUS);
+			focusNode.setPinned(true);
 			focusNodeChanged = false;
 		}
 
@@ -589,9 +726,11 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		 */
 		else if (newFilteringNode != null) {
 			focusNode.setNodeState(ENodeState.DEFAULT);
+			focusNode.setPinned(false);
 
 			focusNode = newFilteringNode;
 			focusNode.setNodeState(ENodeState.FOCUS);
+			focusNode.setPinned(true);
 			focusNodeChanged = true;
 		} else
 			try {
@@ -692,6 +831,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 	protected void takeDown() {
 		vertexSelectionManager.unregisterEventListeners();
 		vertexSelectionManager = null;
+		graphLayout.dispose();
 		super.takeDown();
 	}
 
@@ -801,6 +941,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 	private void addNodeToContainers(ANodeElement nodeToAdd, Boolean isNodeMerged) {
 
 		nodeSet.add(nodeToAdd);
+		topologyVersion++;
 
 		InOutTransitions.IInTransition inTransition;
 		if (isNodeMerged)
@@ -892,6 +1033,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		if (nodeToMergeWith.getVertices().size() == sameVerticesList.size()) {
 
 			boolean containedNode = nodeSet.remove(nodeToMergeWith);
+			topologyVersion++;
 			if (containedNode) {
 				remove(nodeToMergeWith);
 			}
@@ -945,6 +1087,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 						DEFAULT_ADD_PATHWAY_DURATION);
 				mergedEdge.setLayoutData(false);
 				this.edgeSet.add(mergedEdge);
+				topologyVersion++;
 				add(mergedEdge);
 			}
 
@@ -1021,6 +1164,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 			EdgeElement edgeElement = new EdgeElement(edge, sourceNode, targetNode, DEFAULT_ADD_PATHWAY_DURATION);
 
 			edgeSet.add(edgeElement);
+			topologyVersion++;
 			add(edgeElement);
 		}
 	}
@@ -1074,6 +1218,7 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 			try {
 				GraphMergeUtil.addEdgeToEdgeSet(edge, pathwayToAdd, uniqueVertexMap, edgeSet, vrepToGroupNodeMap, this,
 						DEFAULT_ADD_PATHWAY_DURATION);
+				topologyVersion++;
 			} catch (Exception e) {
 				System.err.println(e.getMessage());
 				System.exit(-1);
@@ -1325,6 +1470,11 @@ public class DynamicPathwaysCanvas extends AnimatedGLElementContainer implements
 		ANodeElement newFocusNode = uniqueVertexMap.get(focusVertex);
 
 		if (newFocusNode != null) {
+			/**
+			 * the focus node is pinned -> the recreated one stays, where the old one was
+			 */
+			if (focusNode != null && focusNode != newFocusNode)
+				newFocusNode.setCenter(focusNode.getCenterX(), focusNode.getCenterY());
 			setFocusNode(newFocusNode);
 			view.filterPathwayList(newFocusNode.getVertices());
 
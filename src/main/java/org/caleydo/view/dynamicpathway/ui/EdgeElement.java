@@ -129,12 +129,16 @@ public class EdgeElement extends GLElement implements IFRLayoutEdge {
 
 	}
 
+	/**
+	 * the edge is drawn between the positions, where the nodes are currently drawn - so it follows them, while they are
+	 * animated to their new positions
+	 */
 	private void calcDrawableEdge() {
 
-		double xSource = sourceNode.getCenterX();
-		double ySource = sourceNode.getCenterY();
-		double xTarget = targetNode.getCenterX();
-		double yTarget = targetNode.getCenterY();
+		double xSource = sourceNode.getAnimatedCenterX();
+		double ySource = sourceNode.getAnimatedCenterY();
+		double xTarget = targetNode.getAnimatedCenterX();
+		double yTarget = targetNode.getAnimatedCenterY();
 
 		centerToCenterLine.setLine(xSource, ySource, xTarget, yTarget);
 
@@ -152,7 +156,7 @@ public class EdgeElement extends GLElement implements IFRLayoutEdge {
 			sourcePoint = CalculateIntersectionUtil.calcIntersectionPoint(reversedCenterToCenterLine, radius);
 
 		} else
-			sourcePoint = sourceNode.getIntersectionPointWithNodeBound(centerToCenterLine);
+			sourcePoint = sourceNode.getIntersectionPointWithAnimatedNodeBound(centerToCenterLine);
 
 		if (targetNode.getVertexRep().getType() == EPathwayVertexType.compound) {
 
@@ -161,7 +165,7 @@ public class EdgeElement extends GLElement implements IFRLayoutEdge {
 			targetPoint = CalculateIntersectionUtil.calcIntersectionPoint(centerToCenterLine, radius);
 
 		} else
-			targetPoint = targetNode.getIntersectionPointWithNodeBound(centerToCenterLine);
+			targetPoint = targetNode.getIntersectionPointWithAnimatedNodeBound(centerToCenterLine);
 
 		if (sourcePoint == null && targetPoint == null) {
 			edgeToRender.setLine(centerToCenterLine);
@@ -90,6 +90,23 @@ public class NodeCompoundElement extends ANodeElement {
 
 	}
 
+	/**
+	 * the circle is drawn around the upper left corner of the bounds
+	 */
+	@Override
+	public double getAnimatedCenterX() {
+		if (getBounds().get(2) <= 0.0f)
+			return centerX;
+		return getBounds().get(0);
+	}
+
+	@Override
+	public double getAnimatedCenterY() {
+		if (getBounds().get(3) <= 0.0f)
+			return centerY;
+		return getBounds().get(1);
+	}
+
 	@Override
 	protected void renderImpl(GLGraphics g, float w, float h) {
 		/*
@@ -101,8 +118,6 @@ public class NodeCompoundElement extends ANodeElement {
 		
 		this.height = h;
 		this.width = w;
-		this.centerX = this.getBounds().get(0);
-		this.centerY = this.getBounds().get(1);
 
 		// contour
 		g.color(contourColor).fillCircle(0, 0, RADIUS + INNER_PADDING- HIGHLIGHT_RIGHT_PADDING);